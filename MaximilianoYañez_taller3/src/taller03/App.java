@@ -19,9 +19,7 @@ public class App {
         Sistema s = Sistema.getInstance();
 
         // Carga inicial de datos
-        s.cargarUsuarios();
-        s.cargarProyectos();
-        s.cargarTareas();
+        s.cargarDatos();
 
         // Inicio de la interacción del sistema
         s.menuPrincipal();
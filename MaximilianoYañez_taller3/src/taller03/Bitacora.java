@@ -0,0 +1,305 @@
+package taller03;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Bitácora de cambios (write-ahead journal) de proyectos y tareas.
+ * <p>
+ * En lugar de reescribir los archivos de texto completos en cada guardado, cada
+ * modificación se agrega al final de este archivo como un registro. Al cargar, los
+ * registros se vuelven a aplicar sobre el último contenido de proyectos.txt y
+ * tareas.txt. Periódicamente el {@link Sistema} compacta la bitácora: reescribe los
+ * archivos de texto y descarta los registros ya incorporados.
+ * </p>
+ *
+ * Cada registro tiene el formato:
+ * <pre>
+ *   int  largo      bytes de los campos
+ *   int  crc        CRC32 de la operación y los campos
+ *   byte operacion  código de {@link Operacion}
+ *   byte campos     cantidad de campos
+ *   campos          cada uno como int largo + bytes UTF-8
+ * </pre>
+ * Un registro incompleto o con CRC incorrecto al final del archivo (por ejemplo tras
+ * una caída) se descarta.
+ *
+ * <p>Durante una compactación el archivo actual se mueve a un segmento anterior
+ * (<code>bitacora.dat.1</code>), que se elimina una vez que los archivos de texto se
+ * reescribieron. Al leer se aplica primero ese segmento, si existe, y luego el actual.</p>
+ */
+public final class Bitacora implements Closeable {
+
+    /** Tamaño del buffer de escritura. */
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    /** Tamaño de la cabecera de cada registro. */
+    private static final int CABECERA = 4 + 4 + 1 + 1;
+
+    /**
+     * Operaciones registradas en la bitácora y sus campos.
+     */
+    public enum Operacion {
+        /** Campos: los mismos de una línea de tareas.txt. */
+        AGREGAR_TAREA(1),
+        /** Campos: id de la tarea. */
+        ELIMINAR_TAREA(2),
+        /** Campos: id de la tarea y nuevo estado. */
+        CAMBIAR_ESTADO(3),
+        /** Campos: los mismos de una línea de proyectos.txt. */
+        AGREGAR_PROYECTO(4),
+        /** Campos: id del proyecto. Elimina también sus tareas. */
+        ELIMINAR_PROYECTO(5);
+
+        private final byte codigo;
+
+        Operacion(int codigo) { this.codigo = (byte) codigo; }
+
+        private static Operacion deCodigo(byte codigo) {
+            for (Operacion op : values()) {
+                if (op.codigo == codigo) return op;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Receptor de los registros al reproducir la bitácora.
+     */
+    public interface Receptor {
+
+        /**
+         * @param op     operación registrada.
+         * @param campos campos de la operación.
+         */
+        void registro(Operacion op, String[] campos);
+    }
+
+    private final File archivo;
+    private final File anterior;
+    private FileChannel canal;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+
+    /**
+     * Abre la bitácora para agregar registros, descartando un posible registro
+     * incompleto al final del archivo.
+     *
+     * @param archivo archivo de la bitácora.
+     * @throws IOException si no se puede abrir el archivo.
+     */
+    public Bitacora(File archivo) throws IOException {
+        this.archivo = archivo;
+        this.anterior = segmentoAnterior(archivo);
+        abrir();
+    }
+
+    private void abrir() throws IOException {
+        canal = FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long valido = recorrer(canal, null);
+        if (valido < canal.size()) canal.truncate(valido);
+        canal.position(valido);
+    }
+
+    /**
+     * Agrega un registro al buffer de la bitácora. El registro llega al archivo al
+     * llamar {@link #escribir()} o cuando el buffer se llena.
+     *
+     * @param op     operación a registrar.
+     * @param campos campos de la operación.
+     * @throws IOException si falla la escritura del buffer.
+     */
+    public synchronized void registrar(Operacion op, String... campos) throws IOException {
+        byte[][] bytes = new byte[campos.length][];
+        int largo = 0;
+        for (int i = 0; i < campos.length; i++) {
+            bytes[i] = campos[i].getBytes(StandardCharsets.UTF_8);
+            largo += 4 + bytes[i].length;
+        }
+
+        ByteBuffer cuerpo = ByteBuffer.allocate(2 + largo);
+        cuerpo.put(op.codigo).put((byte) campos.length);
+        for (byte[] b : bytes) cuerpo.putInt(b.length).put(b);
+        CRC32 crc = new CRC32();
+        crc.update(cuerpo.array(), 0, cuerpo.capacity());
+        cuerpo.flip();
+
+        if (buffer.remaining() < 8 + cuerpo.remaining()) escribir();
+        if (buffer.remaining() < 8 + cuerpo.remaining()) {
+            ByteBuffer registro = ByteBuffer.allocate(8 + cuerpo.remaining());
+            registro.putInt(largo).putInt((int) crc.getValue()).put(cuerpo).flip();
+            while (registro.hasRemaining()) canal.write(registro);
+            return;
+        }
+        buffer.putInt(largo).putInt((int) crc.getValue()).put(cuerpo);
+    }
+
+    /**
+     * Escribe en el archivo los registros acumulados en el buffer.
+     *
+     * @throws IOException si falla la escritura.
+     */
+    public synchronized void escribir() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) canal.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Escribe los registros pendientes y los fuerza a disco (<i>fsync</i>).
+     *
+     * @throws IOException si falla la escritura.
+     */
+    public synchronized void sincronizar() throws IOException {
+        escribir();
+        canal.force(false);
+    }
+
+    /** @return tamaño en bytes de la bitácora actual, incluyendo lo pendiente en el buffer. */
+    public synchronized long tamano() throws IOException {
+        return canal.size() + buffer.position();
+    }
+
+    /**
+     * Mueve los registros actuales al segmento anterior y deja la bitácora vacía.
+     * Se usa al comenzar una compactación: los cambios posteriores quedan en el archivo
+     * nuevo y el segmento anterior se elimina con {@link #descartarAnterior()} cuando
+     * los archivos de texto ya los incorporan.
+     *
+     * @throws IOException si falla el movimiento del archivo.
+     */
+    public synchronized void rotar() throws IOException {
+        sincronizar();
+        canal.close();
+        try {
+            if (anterior.exists()) {
+                // Una compactación anterior no terminó: se conservan ambos segmentos en
+                // orden. El segmento se abre también para lectura porque primero se
+                // recorre para descartar un registro incompleto al final.
+                try (FileChannel destino = FileChannel.open(anterior.toPath(),
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                     FileChannel origen = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+                    long largo = recorrer(destino, null);
+                    destino.truncate(largo);
+                    try {
+                        long copiado = 0;
+                        while (copiado < origen.size()) {
+                            copiado += origen.transferTo(copiado, origen.size() - copiado, destino.position(largo + copiado));
+                        }
+                        destino.force(false);
+                    } catch (IOException e) {
+                        // Los registros siguen en el archivo actual: no se duplican en el segmento.
+                        destino.truncate(largo);
+                        throw e;
+                    }
+                }
+                Files.delete(archivo.toPath());
+            } else {
+                Files.move(archivo.toPath(), anterior.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            // Aunque la rotación falle, la bitácora queda abierta para los cambios siguientes.
+            abrir();
+        }
+    }
+
+    /** Elimina el segmento anterior una vez incorporado en los archivos de texto. */
+    public void descartarAnterior() {
+        anterior.delete();
+    }
+
+    /**
+     * Escribe lo pendiente y cierra el archivo.
+     *
+     * @throws IOException si falla la escritura.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!canal.isOpen()) return;
+        escribir();
+        canal.close();
+    }
+
+    /**
+     * Lee los registros de la bitácora indicada, comenzando por el segmento anterior
+     * si existe. La lectura se detiene en el primer registro incompleto o dañado.
+     *
+     * @param archivo  archivo de la bitácora.
+     * @param receptor receptor de los registros.
+     * @throws IOException si ocurre un error de lectura.
+     */
+    public static void reproducir(File archivo, Receptor receptor) throws IOException {
+        for (File f : new File[] { segmentoAnterior(archivo), archivo }) {
+            if (!f.exists()) continue;
+            try (FileChannel canal = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+                recorrer(canal, receptor);
+            }
+        }
+    }
+
+    /**
+     * @param archivo archivo de la bitácora.
+     * @return true si existe el archivo o su segmento anterior.
+     */
+    public static boolean existe(File archivo) {
+        return archivo.exists() || segmentoAnterior(archivo).exists();
+    }
+
+    private static File segmentoAnterior(File archivo) {
+        return new File(archivo.getPath() + ".1");
+    }
+
+    /**
+     * Recorre los registros válidos desde el inicio del canal.
+     *
+     * @return posición siguiente al último registro válido.
+     */
+    private static long recorrer(FileChannel canal, Receptor receptor) throws IOException {
+        long tamano = canal.size();
+        long posicion = 0;
+        ByteBuffer cabecera = ByteBuffer.allocate(8);
+        while (posicion + CABECERA <= tamano) {
+            cabecera.clear();
+            leerCompleto(canal, cabecera, posicion);
+            int largo = cabecera.getInt(0);
+            int crcEsperado = cabecera.getInt(4);
+            if (largo < 0 || posicion + CABECERA + largo > tamano) break;
+
+            ByteBuffer cuerpo = ByteBuffer.allocate(2 + largo);
+            leerCompleto(canal, cuerpo, posicion + 8);
+            CRC32 crc = new CRC32();
+            crc.update(cuerpo.array());
+            if ((int) crc.getValue() != crcEsperado) break;
+
+            Operacion op = Operacion.deCodigo(cuerpo.get(0));
+            if (op == null) break;
+            if (receptor != null) {
+                cuerpo.position(2);
+                String[] campos = new String[cuerpo.get(1)];
+                for (int i = 0; i < campos.length; i++) {
+                    int n = cuerpo.getInt();
+                    campos[i] = new String(cuerpo.array(), cuerpo.position(), n, StandardCharsets.UTF_8);
+                    cuerpo.position(cuerpo.position() + n);
+                }
+                receptor.registro(op, campos);
+            }
+            posicion += CABECERA + largo;
+        }
+        return posicion;
+    }
+
+    private static void leerCompleto(FileChannel canal, ByteBuffer destino, long posicion) throws IOException {
+        while (destino.hasRemaining()) {
+            int n = canal.read(destino, posicion + destino.position());
+            if (n < 0) throw new IOException("Fin inesperado de la bitácora");
+        }
+    }
+}
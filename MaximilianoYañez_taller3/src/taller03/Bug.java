@@ -30,6 +30,16 @@ public class Bug extends Tarea {
         super(id, tipo, descripcion, estado, responsable, complejidad, fecha, proyectoId);
     }
 
+    /**
+     * Crea la vista del bug guardado en una fila de un {@link TareaStore}.
+     *
+     * @param store almacén que contiene los datos
+     * @param fila  fila de la tarea
+     */
+    Bug(TareaStore store, int fila) {
+        super(store, fila);
+    }
+
     /**
      * Acepta un {@link Visitor} para permitir la ejecución de operaciones
      * específicas sobre tareas de tipo Bug.
@@ -0,0 +1,124 @@
+package taller03;
+
+import java.io.IOException;
+
+/**
+ * Agrupa solicitudes de guardado concurrentes en una sola escritura a disco
+ * (<i>group commit</i>).
+ * <p>
+ * La primera solicitud de una tanda espera durante una ventana de tiempo configurable
+ * para que se sumen otras; luego ejecuta la acción de guardado una sola vez y todas
+ * las solicitudes de la tanda terminan con el mismo resultado. Así varias
+ * operaciones simultáneas pagan un único <i>fsync</i>.
+ * </p>
+ */
+public final class ConfirmacionGrupal {
+
+    /**
+     * Acción de guardado que se ejecuta una vez por tanda.
+     */
+    public interface Accion {
+
+        /**
+         * @throws IOException si el guardado falla.
+         */
+        void ejecutar() throws IOException;
+    }
+
+    /** Conjunto de solicitudes atendidas por una misma ejecución. */
+    private static final class Tanda {
+        private boolean terminada;
+        private IOException error;
+    }
+
+    private final Accion accion;
+    private volatile long ventanaMs;
+
+    /** Tanda que todavía acepta solicitudes, o null si no hay ninguna. */
+    private Tanda abierta;
+
+    /** Indica si hay una ejecución de la acción en curso. */
+    private boolean ejecutando;
+
+    /**
+     * @param ventanaMs tiempo en milisegundos que se espera a otras solicitudes.
+     * @param accion    acción de guardado.
+     */
+    public ConfirmacionGrupal(long ventanaMs, Accion accion) {
+        this.ventanaMs = ventanaMs;
+        this.accion = accion;
+    }
+
+    /** @param ventanaMs nueva ventana de agrupación en milisegundos (0 para no esperar). */
+    public void setVentanaMs(long ventanaMs) { this.ventanaMs = ventanaMs; }
+
+    /**
+     * Solicita un guardado y espera a que la tanda que lo incluye termine.
+     *
+     * @throws IOException si el guardado de la tanda falló.
+     */
+    public void confirmar() throws IOException {
+        Tanda tanda;
+        boolean lider;
+        synchronized (this) {
+            lider = abierta == null;
+            if (lider) abierta = new Tanda();
+            tanda = abierta;
+        }
+
+        if (lider) {
+            esperarVentana();
+            synchronized (this) {
+                boolean interrumpido = false;
+                while (ejecutando) interrumpido |= esperar();
+                if (interrumpido) Thread.currentThread().interrupt();
+                ejecutando = true;
+                abierta = null;
+            }
+            IOException error = null;
+            try {
+                accion.ejecutar();
+            } catch (IOException e) {
+                error = e;
+            }
+            synchronized (this) {
+                ejecutando = false;
+                tanda.terminada = true;
+                tanda.error = error;
+                notifyAll();
+            }
+        } else {
+            synchronized (this) {
+                boolean interrumpido = false;
+                while (!tanda.terminada) interrumpido |= esperar();
+                if (interrumpido) Thread.currentThread().interrupt();
+            }
+        }
+        if (tanda.error != null) throw tanda.error;
+    }
+
+    private void esperarVentana() {
+        long ms = ventanaMs;
+        if (ms <= 0) return;
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Espera una notificación. Una interrupción no corta la espera (la tanda debe
+     * terminar de todas formas); se informa para restaurarla al final.
+     *
+     * @return true si el hilo fue interrumpido.
+     */
+    private boolean esperar() {
+        try {
+            wait();
+            return false;
+        } catch (InterruptedException e) {
+            return true;
+        }
+    }
+}
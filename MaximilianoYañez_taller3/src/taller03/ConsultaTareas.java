@@ -0,0 +1,344 @@
+package taller03;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Consulta sobre las tareas de un {@link TareaStore}, armada con filtros
+ * encadenables:
+ * <pre>
+ *     new ConsultaTareas().deProyecto("PR001").conEstado("Pendiente").limite(10)
+ * </pre>
+ * <p>
+ * Se puede filtrar por estado, tipo, complejidad, responsable, proyecto y rango de
+ * fechas, ordenar con un comparador, limitar la cantidad de resultados y proyectar
+ * cada tarea con {@link #proyectar}. Estado, tipo y complejidad aceptan varios
+ * valores (basta con uno) y valores excluidos. Los textos se comparan sin
+ * distinguir mayúsculas de minúsculas, salvo el ID de proyecto.
+ * </p>
+ *
+ * Al ejecutarse, la consulta elige como punto de partida el índice del almacén
+ * que entrega menos filas entre los filtros que tienen índice: proyecto,
+ * responsable, fecha y la combinación de estado, tipo y complejidad, que se
+ * resuelve con los conjuntos de filas de {@link IndiceValores}. El resto de los
+ * filtros se aplica directamente sobre esas filas, sin crear las tareas que se
+ * descartan. Sin filtros con índice se recorre el almacén completo.
+ * {@link #explicar} indica la elección y {@link #contar} cuenta sin crear tareas.
+ */
+public final class ConsultaTareas {
+
+    /** Punto de partida de una consulta. */
+    public enum Fuente { PROYECTO, RESPONSABLE, FECHA, VALORES, RECORRIDO }
+
+    /** Valores aceptados y excluidos de estado, tipo y complejidad. */
+    private final Map<IndiceValores.Atributo, String[]> aceptados = new EnumMap<>(IndiceValores.Atributo.class);
+    private final Map<IndiceValores.Atributo, String[]> excluidos = new EnumMap<>(IndiceValores.Atributo.class);
+
+    private String responsable;
+    private String proyectoId;
+    private LocalDate desde;
+    private LocalDate hasta;
+    private Comparator<? super Tarea> orden;
+    private int limite = Integer.MAX_VALUE;
+
+    /** @return esta consulta, filtrando por alguno de los estados indicados. */
+    public ConsultaTareas conEstado(String... estados) {
+        aceptados.put(IndiceValores.Atributo.ESTADO, estados.clone());
+        return this;
+    }
+
+    /** @return esta consulta, filtrando por alguno de los tipos indicados. */
+    public ConsultaTareas conTipo(String... tipos) {
+        aceptados.put(IndiceValores.Atributo.TIPO, tipos.clone());
+        return this;
+    }
+
+    /** @return esta consulta, filtrando por alguna de las complejidades indicadas. */
+    public ConsultaTareas conComplejidad(String... complejidades) {
+        aceptados.put(IndiceValores.Atributo.COMPLEJIDAD, complejidades.clone());
+        return this;
+    }
+
+    /** @return esta consulta, excluyendo los estados indicados. */
+    public ConsultaTareas sinEstado(String... estados) {
+        excluidos.put(IndiceValores.Atributo.ESTADO, estados.clone());
+        return this;
+    }
+
+    /** @return esta consulta, excluyendo los tipos indicados. */
+    public ConsultaTareas sinTipo(String... tipos) {
+        excluidos.put(IndiceValores.Atributo.TIPO, tipos.clone());
+        return this;
+    }
+
+    /** @return esta consulta, excluyendo las complejidades indicadas. */
+    public ConsultaTareas sinComplejidad(String... complejidades) {
+        excluidos.put(IndiceValores.Atributo.COMPLEJIDAD, complejidades.clone());
+        return this;
+    }
+
+    /** @return esta consulta, filtrando por responsable. */
+    public ConsultaTareas deResponsable(String responsable) {
+        this.responsable = responsable;
+        return this;
+    }
+
+    /** @return esta consulta, filtrando por ID de proyecto. */
+    public ConsultaTareas deProyecto(String proyectoId) {
+        this.proyectoId = proyectoId;
+        return this;
+    }
+
+    /**
+     * Filtra por rango de fechas, inclusive. Las tareas con fecha que no está en
+     * formato yyyy-MM-dd quedan fuera.
+     *
+     * @param desde primer día, o null para no acotar.
+     * @param hasta último día, o null para no acotar.
+     * @return esta consulta.
+     */
+    public ConsultaTareas entre(LocalDate desde, LocalDate hasta) {
+        this.desde = desde;
+        this.hasta = hasta;
+        return this;
+    }
+
+    /**
+     * Ordena el resultado. Sin comparador se entrega en el orden del almacén.
+     *
+     * @return esta consulta.
+     */
+    public ConsultaTareas ordenadaPor(Comparator<? super Tarea> orden) {
+        this.orden = orden;
+        return this;
+    }
+
+    /** @return esta consulta, entregando como máximo la cantidad indicada de tareas. */
+    public ConsultaTareas limite(int limite) {
+        if (limite < 0) throw new IllegalArgumentException("El límite no puede ser negativo");
+        this.limite = limite;
+        return this;
+    }
+
+    /**
+     * Ejecuta la consulta y aplica una proyección a cada tarea del resultado.
+     *
+     * @param store      almacén a consultar.
+     * @param proyeccion función que se aplica a cada tarea.
+     * @return resultados proyectados, en el orden de la consulta.
+     */
+    public <R> List<R> proyectar(TareaStore store, Function<? super Tarea, ? extends R> proyeccion) {
+        List<R> resultado = new ArrayList<>();
+        for (Tarea t : ejecutar(store)) resultado.add(proyeccion.apply(t));
+        return resultado;
+    }
+
+    /**
+     * Cuenta las tareas que cumplen la consulta, sin tener en cuenta el orden ni el
+     * límite y sin crear las tareas. Si solo hay filtros de estado, tipo y
+     * complejidad, la cantidad sale directamente de los conjuntos de filas.
+     *
+     * @param store almacén a consultar.
+     * @return cantidad de tareas.
+     */
+    public int contar(TareaStore store) {
+        Plan plan = planificar(store);
+        if (proyectoId == null && responsable == null && desde == null && hasta == null) {
+            return plan.valores == null ? store.size() : plan.valores.cardinalidad();
+        }
+        Filtro filtro = new Filtro(store.filas(), store.indice(), plan.valores);
+        int n = 0;
+        for (int f : candidatas(store, plan)) {
+            if (filtro.acepta(f)) n++;
+        }
+        return n;
+    }
+
+    /**
+     * Indica qué punto de partida usaría la consulta en el almacén.
+     *
+     * @param store almacén a consultar.
+     * @return fuente elegida y su cantidad estimada de filas.
+     */
+    public String explicar(TareaStore store) {
+        Plan plan = planificar(store);
+        return plan.fuente + (plan.fuente == Fuente.RECORRIDO ? "" : " (" + plan.filas + " filas)");
+    }
+
+    // ========================================================================
+    //  EJECUCIÓN
+    // ========================================================================
+
+    /** Fuente elegida, cantidad de filas que entrega y filas que cumplen los filtros por valor. */
+    private static final class Plan {
+        final Fuente fuente;
+        final int filas;
+        final MapaBits valores;
+
+        Plan(Fuente fuente, int filas, MapaBits valores) {
+            this.fuente = fuente;
+            this.filas = filas;
+            this.valores = valores;
+        }
+    }
+
+    /** Elige el índice que entrega menos filas. */
+    private Plan planificar(TareaStore store) {
+        IndiceTareas indice = store.indice();
+        MapaBits valores = filasPorValor(store);
+        Plan mejor = new Plan(Fuente.RECORRIDO, store.size(), valores);
+        if (proyectoId != null) {
+            int n = indice.cantidadDeProyecto(proyectoId);
+            if (n < mejor.filas) mejor = new Plan(Fuente.PROYECTO, n, valores);
+        }
+        if (responsable != null) {
+            int n = indice.cantidadDeResponsable(responsable);
+            if (n < mejor.filas) mejor = new Plan(Fuente.RESPONSABLE, n, valores);
+        }
+        if (desde != null || hasta != null) {
+            int n = indice.cantidadEntre(diaDesde(), diaHasta(), mejor.filas);
+            if (n < mejor.filas) mejor = new Plan(Fuente.FECHA, n, valores);
+        }
+        if (valores != null && valores.cardinalidad() < mejor.filas) {
+            mejor = new Plan(Fuente.VALORES, valores.cardinalidad(), valores);
+        }
+        return mejor;
+    }
+
+    /**
+     * Combina los conjuntos de filas de los valores aceptados y excluidos.
+     *
+     * @return filas que cumplen los filtros de estado, tipo y complejidad, o null
+     *         si la consulta no tiene esos filtros.
+     */
+    private MapaBits filasPorValor(TareaStore store) {
+        if (aceptados.isEmpty() && excluidos.isEmpty()) return null;
+        IndiceValores indice = store.valores();
+        MapaBits r = null;
+        for (Map.Entry<IndiceValores.Atributo, String[]> e : aceptados.entrySet()) {
+            MapaBits m = indice.filas(e.getKey(), e.getValue());
+            r = r == null ? m : MapaBits.y(r, m);
+        }
+        if (r == null) r = indice.todas();
+        for (Map.Entry<IndiceValores.Atributo, String[]> e : excluidos.entrySet()) {
+            r = MapaBits.sin(r, indice.filas(e.getKey(), e.getValue()));
+        }
+        return r;
+    }
+
+    /** @return filas de la fuente del plan, sin orden salvo en el recorrido. */
+    private int[] candidatas(TareaStore store, Plan plan) {
+        IndiceTareas indice = store.indice();
+        switch (plan.fuente) {
+            case PROYECTO: return indice.filasDeProyecto(proyectoId);
+            case RESPONSABLE: return indice.filasDeResponsable(responsable);
+            case FECHA: return indice.filasEntre(diaDesde(), diaHasta());
+            case VALORES: return plan.valores.filas();
+            default:
+                FilasTareas filas = store.filas();
+                int[] fs = new int[filas.tamano()];
+                for (int p = 0; p < fs.length; p++) fs[p] = filas.fila(p);
+                return fs;
+        }
+    }
+
+    /** Ejecuta la consulta. Lo invoca {@link TareaStore#consultar}. */
+    List<Tarea> ejecutar(TareaStore store) {
+        FilasTareas filas = store.filas();
+        IndiceTareas indice = store.indice();
+        Plan plan = planificar(store);
+        int tope = orden == null ? limite : Integer.MAX_VALUE;
+        Filtro filtro = new Filtro(filas, indice, plan.valores);
+
+        int n = 0;
+        if (plan.fuente == Fuente.RECORRIDO) {
+            // El recorrido ya está en orden: puede terminar al llegar al límite.
+            int[] candidatas = new int[Math.min(plan.filas, Math.max(tope, 0))];
+            for (int p = 0, total = filas.tamano(); p < total && n < tope; p++) {
+                int f = filas.fila(p);
+                if (filtro.acepta(f)) candidatas[n++] = f;
+            }
+            return resultado(store, candidatas, n, false);
+        }
+        int[] candidatas = candidatas(store, plan);
+        for (int f : candidatas) {
+            if (filtro.acepta(f)) candidatas[n++] = f;
+        }
+        return resultado(store, candidatas, n, true);
+    }
+
+    /** Crea las tareas de las filas aceptadas, ordenadas y limitadas. */
+    private List<Tarea> resultado(TareaStore store, int[] fs, int n, boolean ordenarPorPosicion) {
+        if (orden == null) {
+            if (ordenarPorPosicion) store.ordenarPorPosicion(fs, n);
+            n = Math.min(n, limite);
+        }
+        List<Tarea> tareas = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) tareas.add(store.vista(fs[i]));
+        if (orden != null) {
+            tareas.sort(orden);
+            if (tareas.size() > limite) tareas = new ArrayList<>(tareas.subList(0, limite));
+        }
+        return tareas;
+    }
+
+    private long diaDesde() {
+        return desde == null ? Long.MIN_VALUE : desde.toEpochDay();
+    }
+
+    private long diaHasta() {
+        return hasta == null ? Long.MAX_VALUE : hasta.toEpochDay();
+    }
+
+    /** Todos los filtros de la consulta evaluados sobre una fila. */
+    private final class Filtro {
+        private final FilasTareas filas;
+        private final IndiceTareas indice;
+        private final MapaBits valores;
+        private final int codigoProyecto;
+        private final String responsableNormalizado;
+        private final boolean porFecha;
+        private final long diaDesde;
+        private final long diaHasta;
+
+        Filtro(FilasTareas filas, IndiceTareas indice, MapaBits valores) {
+            this.filas = filas;
+            this.indice = indice;
+            this.valores = valores;
+            this.codigoProyecto = proyectoId == null ? -1 : filas.buscarIdentificador(proyectoId);
+            this.responsableNormalizado = responsable == null ? null : IndiceTareas.normalizar(responsable);
+            this.porFecha = desde != null || hasta != null;
+            this.diaDesde = diaDesde();
+            this.diaHasta = diaHasta();
+        }
+
+        boolean acepta(int f) {
+            if (proyectoId != null && filas.codigoProyecto(f) != codigoProyecto) return false;
+            if (responsableNormalizado != null && !indice.esDeResponsable(f, responsableNormalizado)) return false;
+            if (porFecha) {
+                long dia = filas.dia(f);
+                if (dia == Long.MIN_VALUE || dia < diaDesde || dia > diaHasta) return false;
+            }
+            return valores == null || valores.contiene(f);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConsultaTareas{aceptados=" + texto(aceptados) + ", excluidos=" + texto(excluidos)
+                + ", responsable=" + responsable + ", proyectoId=" + proyectoId
+                + ", desde=" + desde + ", hasta=" + hasta + ", limite=" + limite + "}";
+    }
+
+    private static String texto(Map<IndiceValores.Atributo, String[]> valores) {
+        Map<IndiceValores.Atributo, List<String>> r = new EnumMap<>(IndiceValores.Atributo.class);
+        valores.forEach((a, v) -> r.put(a, Arrays.asList(v)));
+        return r.toString();
+    }
+}
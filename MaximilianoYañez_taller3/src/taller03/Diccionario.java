@@ -0,0 +1,92 @@
+package taller03;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diccionario de textos repetidos que asigna a cada valor distinto un código
+ * entero correlativo, comenzando en 0.
+ * <p>
+ * Se usa para guardar los atributos de las tareas que provienen de vocabularios
+ * pequeños (tipo, estado, complejidad) como códigos, y para compartir una única
+ * instancia de los textos muy repetidos (responsables, IDs de proyecto). Los
+ * valores se conservan tal como se escribieron, respetando mayúsculas y tildes.
+ * </p>
+ *
+ * La consulta no usa bloqueos, por lo que puede usarse desde la carga paralela;
+ * solo el registro de un valor nuevo se sincroniza.
+ */
+public final class Diccionario {
+
+    private final ConcurrentHashMap<String, Integer> codigos = new ConcurrentHashMap<>();
+    private volatile String[] valores = new String[8];
+    private final int capacidad;
+    private int cantidad = 0;
+
+    /**
+     * @param capacidad cantidad máxima de valores distintos.
+     */
+    public Diccionario(int capacidad) {
+        this.capacidad = capacidad;
+    }
+
+    /**
+     * Retorna el código de un valor, registrándolo si es nuevo.
+     *
+     * @param valor texto a codificar.
+     * @return código del valor.
+     * @throws IllegalStateException si el diccionario ya tiene la cantidad máxima de valores.
+     */
+    public int codigo(String valor) {
+        Integer c = codigos.get(valor);
+        return c != null ? c : registrar(valor);
+    }
+
+    /**
+     * Busca el código de un valor sin registrarlo.
+     *
+     * @param valor texto a buscar.
+     * @return código del valor, o -1 si no está registrado.
+     */
+    public int buscar(String valor) {
+        Integer c = codigos.get(valor);
+        return c != null ? c : -1;
+    }
+
+    /**
+     * @param codigo código obtenido con {@link #codigo(String)}.
+     * @return valor asociado al código.
+     */
+    public String valor(int codigo) {
+        return valores[codigo];
+    }
+
+    /**
+     * Retorna la instancia compartida de un texto, registrándolo si es nuevo.
+     *
+     * @param valor texto a compartir.
+     * @return instancia igual a <code>valor</code> guardada en el diccionario.
+     */
+    public String canonico(String valor) {
+        return valor(codigo(valor));
+    }
+
+    /** @return cantidad de valores distintos registrados. */
+    public synchronized int tamano() {
+        return cantidad;
+    }
+
+    private synchronized int registrar(String valor) {
+        Integer c = codigos.get(valor);
+        if (c != null) return c;
+        if (cantidad == capacidad) {
+            throw new IllegalStateException("Se superó el máximo de " + capacidad + " valores distintos");
+        }
+        String[] actuales = valores;
+        if (cantidad == actuales.length) actuales = Arrays.copyOf(actuales, Math.min(capacidad, cantidad * 2));
+        actuales[cantidad] = valor;
+        valores = actuales;
+        codigos.put(valor, cantidad);
+        return cantidad++;
+    }
+}
@@ -29,6 +29,16 @@ public class Documentacion extends Tarea {
         super(id, tipo, descripcion, estado, responsable, complejidad, fecha, proyectoId);
     }
 
+    /**
+     * Crea la vista de la tarea de documentación guardada en una fila de un {@link TareaStore}.
+     *
+     * @param store almacén que contiene los datos
+     * @param fila  fila de la tarea
+     */
+    Documentacion(TareaStore store, int fila) {
+        super(store, fila);
+    }
+
     /**
      * Acepta un {@link Visitor} para permitir aplicar una operación externa
      * específica para tareas de documentación.
@@ -0,0 +1,104 @@
+package taller03;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * Escritura de archivos completos a prueba de caídas.
+ * <p>
+ * El contenido se escribe primero en un archivo temporal de la misma carpeta, se
+ * fuerza a disco con un único <i>fsync</i> y luego se renombra de forma atómica sobre
+ * el archivo original. Si el programa se interrumpe a mitad de la escritura, el
+ * archivo original queda intacto.
+ * </p>
+ */
+public final class EscritorAtomico {
+
+    /** Tamaño del buffer de escritura. */
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    /** Permisos de un archivo nuevo (el temporal se crea solo para el dueño). */
+    private static final Set<PosixFilePermission> PERMISOS_NUEVO = PosixFilePermissions.fromString("rw-r--r--");
+
+    /**
+     * Genera el contenido del archivo.
+     */
+    public interface Contenido {
+
+        /**
+         * @param salida flujo donde se escribe el contenido; no debe cerrarse.
+         * @throws IOException si falla la escritura.
+         */
+        void escribir(OutputStream salida) throws IOException;
+    }
+
+    private EscritorAtomico() {}
+
+    /**
+     * Reemplaza el contenido de un archivo de forma atómica.
+     *
+     * @param destino   archivo a escribir.
+     * @param contenido generador del contenido.
+     * @throws IOException si falla la escritura; en ese caso el archivo original no cambia.
+     */
+    public static void escribir(File destino, Contenido contenido) throws IOException {
+        Path ruta = destino.toPath().toAbsolutePath();
+        Path carpeta = ruta.getParent();
+        Path temporal = Files.createTempFile(carpeta, "." + destino.getName() + ".", ".tmp");
+        try {
+            copiarPermisos(ruta, temporal);
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+                OutputStream salida = new BufferedOutputStream(Channels.newOutputStream(canal), TAMANO_BUFFER);
+                contenido.escribir(salida);
+                salida.flush();
+                canal.force(true);
+            }
+            try {
+                Files.move(temporal, ruta, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING);
+            }
+            sincronizarCarpeta(carpeta);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /**
+     * Deja en el temporal los mismos permisos del archivo que va a reemplazar, para
+     * que el renombrado no los cambie. En sistemas sin permisos POSIX no hace nada.
+     */
+    static void copiarPermisos(Path original, Path temporal) throws IOException {
+        try {
+            Set<PosixFilePermission> permisos = Files.exists(original)
+                    ? Files.getPosixFilePermissions(original) : PERMISOS_NUEVO;
+            Files.setPosixFilePermissions(temporal, permisos);
+        } catch (UnsupportedOperationException e) {
+            // Sistema de archivos sin permisos POSIX.
+        }
+    }
+
+    /**
+     * Fuerza a disco la entrada de directorio del archivo renombrado. No todos los
+     * sistemas operativos permiten abrir una carpeta; en ese caso se omite.
+     */
+    private static void sincronizarCarpeta(Path carpeta) {
+        try (FileChannel canal = FileChannel.open(carpeta, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            // No soportado en esta plataforma: el renombrado igual es atómico.
+        }
+    }
+}
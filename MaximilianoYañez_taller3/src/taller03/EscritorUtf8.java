@@ -0,0 +1,237 @@
+package taller03;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Escritor de texto UTF-8 con un único buffer que se reutiliza durante toda la
+ * escritura.
+ * <p>
+ * Los caracteres se codifican directamente en el buffer, sin crear arreglos
+ * intermedios por cada texto. Sobre un {@link FileChannel} el buffer se envía al
+ * canal cada vez que se llena, por lo que la memoria usada no depende del tamaño
+ * de lo escrito; sin canal, el buffer crece y guarda todo lo escrito para copiar
+ * partes a otro escritor con {@link #copiarA}. Igual que {@link String#getBytes},
+ * un carácter sustituto sin pareja se escribe como '?'.
+ * </p>
+ *
+ * Cerrar el escritor envía lo pendiente pero no cierra el canal.
+ */
+final class EscritorUtf8 extends Writer {
+
+    /** Tamaño del buffer por defecto. */
+    static final int TAMANO_BUFFER = 1 << 20;
+
+    /** Canal de destino, o null si lo escrito se guarda en memoria. */
+    private final FileChannel canal;
+    private byte[] bytes;
+    private ByteBuffer buffer;
+    private int usados;
+
+    /** Bytes ya enviados al canal. */
+    private long enviados;
+
+    /** Tramo de texto que se está codificando. */
+    private final char[] caracteres = new char[8192];
+
+    /** Primera mitad de un par sustituto que llegó al final de la escritura anterior, o 0. */
+    private char pendiente;
+
+    /**
+     * @param canal canal abierto para escritura, en la posición donde se escribe.
+     */
+    EscritorUtf8(FileChannel canal) {
+        this(canal, TAMANO_BUFFER);
+    }
+
+    /**
+     * @param canal  canal abierto para escritura, en la posición donde se
+     *               escribe, o null para guardar lo escrito en memoria.
+     * @param tamano tamaño del buffer, en bytes; en memoria es el tamaño inicial.
+     */
+    EscritorUtf8(FileChannel canal, int tamano) {
+        this.canal = canal;
+        this.bytes = new byte[Math.max(tamano, 16)];
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        codificar((char) c);
+    }
+
+    @Override
+    public void write(String s, int inicio, int largo) throws IOException {
+        // Se copia por tramos a un arreglo de caracteres, más rápido de recorrer que el texto.
+        for (int i = inicio, fin = inicio + largo; i < fin; ) {
+            int n = Math.min(fin - i, caracteres.length);
+            s.getChars(i, i + n, caracteres, 0);
+            write(caracteres, 0, n);
+            i += n;
+        }
+    }
+
+    @Override
+    public void write(char[] c, int inicio, int largo) throws IOException {
+        int i = inicio, fin = inicio + largo;
+        while (i < fin) {
+            // Los tramos ASCII se copian sin pasar por la codificación general.
+            if (pendiente == 0) {
+                int u = usados;
+                int limite = Math.min(fin, i + bytes.length - u);
+                while (i < limite && c[i] < 0x80) bytes[u++] = (byte) c[i++];
+                usados = u;
+                if (i == fin) return;
+                if (i == limite) {
+                    vaciar();
+                    continue;
+                }
+            }
+            codificar(c[i++]);
+        }
+    }
+
+    /** @return bytes guardados en memoria desde la creación o desde {@link #reiniciar}. */
+    int tamano() {
+        return usados;
+    }
+
+    /** Descarta lo guardado en memoria, conservando el buffer. */
+    void reiniciar() {
+        usados = 0;
+    }
+
+    /**
+     * Copia bytes ya guardados en memoria a otro escritor.
+     *
+     * @param destino escritor de destino.
+     * @param desde   posición del primer byte, según {@link #tamano}.
+     * @param hasta   posición siguiente al último byte.
+     */
+    void copiarA(EscritorUtf8 destino, int desde, int hasta) throws IOException {
+        destino.escribirBytes(bytes, desde, hasta - desde);
+    }
+
+    /**
+     * @return bytes escritos desde la creación, incluidos los que siguen en el
+     *         buffer; en memoria, los guardados desde {@link #reiniciar}.
+     */
+    long posicion() {
+        return enviados + usados;
+    }
+
+    /**
+     * Envía lo pendiente y luego escribe en el canal varios buffers, en orden, con
+     * escrituras agrupadas.
+     *
+     * @param buffers  buffers a escribir.
+     * @param cantidad cantidad de buffers del arreglo que se escriben.
+     */
+    void escribir(ByteBuffer[] buffers, int cantidad) throws IOException {
+        vaciar();
+        long pendientes = 0;
+        for (int i = 0; i < cantidad; i++) pendientes += buffers[i].remaining();
+        enviados += pendientes;
+        while (pendientes > 0) pendientes -= canal.write(buffers, 0, cantidad);
+    }
+
+    /**
+     * Envía lo pendiente y luego copia al canal una parte de otro archivo, sin
+     * pasarla por el buffer.
+     *
+     * @param origen   canal abierto para lectura.
+     * @param desde    posición del primer byte en el origen.
+     * @param cantidad cantidad de bytes.
+     */
+    void transferir(FileChannel origen, long desde, long cantidad) throws IOException {
+        vaciar();
+        enviados += cantidad;
+        while (cantidad > 0) {
+            long n = origen.transferTo(desde, cantidad, canal);
+            if (n <= 0) throw new IOException("No se pudo copiar la parte del archivo");
+            desde += n;
+            cantidad -= n;
+        }
+    }
+
+    /** @return vista de los bytes guardados en memoria, lista para escribir en un canal. */
+    ByteBuffer contenido() {
+        return ByteBuffer.wrap(bytes, 0, usados);
+    }
+
+    private void escribirBytes(byte[] b, int desde, int largo) throws IOException {
+        while (largo > 0) {
+            if (usados == bytes.length) vaciar();
+            int n = Math.min(largo, bytes.length - usados);
+            System.arraycopy(b, desde, bytes, usados, n);
+            usados += n;
+            desde += n;
+            largo -= n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (canal != null) vaciar();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (pendiente != 0) {
+            pendiente = 0;
+            codificar('?');
+        }
+        flush();
+    }
+
+    private void codificar(char c) throws IOException {
+        if (bytes.length - usados < 5) vaciar();
+        if (c < 0x80 && pendiente == 0) {
+            bytes[usados++] = (byte) c;
+            return;
+        }
+        if (pendiente != 0) {
+            char alto = pendiente;
+            pendiente = 0;
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(alto, c);
+                bytes[usados++] = (byte) (0xF0 | cp >> 18);
+                bytes[usados++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                bytes[usados++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                bytes[usados++] = (byte) (0x80 | cp & 0x3F);
+                return;
+            }
+            bytes[usados++] = '?';
+        }
+        if (c < 0x80) {
+            bytes[usados++] = (byte) c;
+        } else if (c < 0x800) {
+            bytes[usados++] = (byte) (0xC0 | c >> 6);
+            bytes[usados++] = (byte) (0x80 | c & 0x3F);
+        } else if (Character.isHighSurrogate(c)) {
+            pendiente = c;
+        } else if (Character.isLowSurrogate(c)) {
+            bytes[usados++] = '?';
+        } else {
+            bytes[usados++] = (byte) (0xE0 | c >> 12);
+            bytes[usados++] = (byte) (0x80 | c >> 6 & 0x3F);
+            bytes[usados++] = (byte) (0x80 | c & 0x3F);
+        }
+    }
+
+    /** Envía al canal el contenido del buffer o, en memoria, lo agranda. */
+    private void vaciar() throws IOException {
+        if (canal == null) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            buffer = ByteBuffer.wrap(bytes);
+            return;
+        }
+        buffer.clear().limit(usados);
+        while (buffer.hasRemaining()) canal.write(buffer);
+        enviados += usados;
+        usados = 0;
+    }
+}
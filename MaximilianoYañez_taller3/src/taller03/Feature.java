@@ -31,6 +31,16 @@ public class Feature extends Tarea {
         super(id, tipo, descripcion, estado, responsable, complejidad, fecha, proyectoId);
     }
 
+    /**
+     * Crea la vista de la Feature guardada en una fila de un {@link TareaStore}.
+     *
+     * @param store almacén que contiene los datos
+     * @param fila  fila de la tarea
+     */
+    Feature(TareaStore store, int fila) {
+        super(store, fila);
+    }
+
     /**
      * Acepta un {@link Visitor} para aplicar una operación externa
      * definida por dicho visitor.
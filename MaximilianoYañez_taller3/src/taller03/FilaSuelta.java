@@ -0,0 +1,116 @@
+package taller03;
+
+/**
+ * Fila única de una {@link Tarea} que no pertenece a ningún {@link TareaStore}:
+ * una tarea recién creada o una eliminada de su almacén.
+ * <p>
+ * Guarda los atributos como texto en campos, sin arreglos ni diccionarios, porque
+ * se crea una por tarea suelta. Al agregar la tarea a un almacén sus datos se
+ * copian en una fila de ese almacén y esta fila se descarta.
+ * </p>
+ *
+ * La fila es siempre la 0. El orden tiene una sola posición y no se modifica.
+ */
+final class FilaSuelta extends FilasTareas {
+
+    private String id;
+    private String tipo;
+    private String descripcion;
+    private String estado;
+    private String responsable;
+    private String complejidad;
+    private String fecha;
+    private String proyectoId;
+
+    /** Crea una fila con todos sus atributos en null. */
+    FilaSuelta() {
+    }
+
+    FilaSuelta(String id, String tipo, String descripcion, String estado,
+               String responsable, String complejidad, String fecha, String proyectoId) {
+        escribir(0, id, tipo, descripcion, estado, responsable, complejidad, fecha, proyectoId);
+    }
+
+    // ---- orden ----
+
+    @Override int tamano() { return 1; }
+
+    @Override int fila(int posicion) { return 0; }
+
+    @Override void setFila(int posicion, int fila) { throw new UnsupportedOperationException(); }
+
+    @Override void insertar(int posicion, int fila) { throw new UnsupportedOperationException(); }
+
+    @Override void quitar(int posicion) { throw new UnsupportedOperationException(); }
+
+    @Override void setTamano(int tamano) { throw new UnsupportedOperationException(); }
+
+    // ---- fila ----
+
+    @Override int nueva() { return 0; }
+
+    @Override void liberar(int f) { reiniciar(); }
+
+    @Override
+    void escribir(int f, String id, String tipo, String descripcion, String estado,
+                  String responsable, String complejidad, String fecha, String proyectoId) {
+        this.id = id;
+        this.tipo = tipo;
+        this.descripcion = descripcion;
+        this.estado = estado;
+        this.responsable = responsable;
+        this.complejidad = complejidad;
+        this.fecha = fecha;
+        this.proyectoId = proyectoId;
+    }
+
+    @Override String id(int f) { return id; }
+
+    @Override String tipo(int f) { return tipo; }
+
+    @Override String descripcion(int f) { return descripcion; }
+
+    @Override String estado(int f) { return estado; }
+
+    @Override String responsable(int f) { return responsable; }
+
+    @Override String complejidad(int f) { return complejidad; }
+
+    @Override String fecha(int f) { return fecha; }
+
+    @Override String proyectoId(int f) { return proyectoId; }
+
+    @Override
+    long dia(int f) {
+        long dia = diaDeFecha(fecha);
+        return dia < Integer.MIN_VALUE || dia > Integer.MAX_VALUE ? Long.MIN_VALUE : dia;
+    }
+
+    @Override void setEstado(int f, String estado) { this.estado = estado; }
+
+    @Override void setResponsable(int f, String responsable) { this.responsable = responsable; }
+
+    // Los únicos identificadores son el responsable (código 0) y el proyecto (código 1,
+    // o 0 si es igual al responsable).
+
+    @Override int codigoProyecto(int f) { return proyectoId == null ? NULO : buscarIdentificador(proyectoId); }
+
+    @Override int codigoResponsable(int f) { return responsable == null ? NULO : 0; }
+
+    @Override
+    int buscarIdentificador(String valor) {
+        if (valor == null) return -1;
+        if (valor.equals(responsable)) return 0;
+        return valor.equals(proyectoId) ? 1 : -1;
+    }
+
+    @Override
+    FilasTareas copia() {
+        return new FilaSuelta(id, tipo, descripcion, estado, responsable, complejidad, fecha, proyectoId);
+    }
+
+    @Override
+    void reiniciar() {
+        escribir(0, null, null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,344 @@
+package taller03;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Filas de tareas guardadas en arreglos del heap, uno por atributo.
+ * <p>
+ * El tipo, el estado y la complejidad se guardan como códigos de un byte, el
+ * responsable y el proyecto como códigos enteros de un {@link Diccionario}
+ * y la fecha como número de día. Solo el ID y la descripción se guardan como
+ * texto. Los diccionarios pertenecen a cada almacenamiento y se descartan con él;
+ * solo los tramos de una carga paralela ({@link #tramo()}) comparten los del
+ * almacenamiento al que se incorporan.
+ * </p>
+ * <p>
+ * Estos tres atributos son texto libre, por lo que sus diccionarios no tienen
+ * límite: el byte guarda el código más uno, y el byte 0 indica que el valor es
+ * null. Los valores cuyo código no cabe usan el byte {@value #DESBORDE} y el
+ * código de la fila se guarda aparte; con los vocabularios habituales ese mapa
+ * queda vacío. Un responsable o proyecto null se guarda como {@link #NULO} y una
+ * fecha null como {@link #FECHA_NULA}.
+ * </p>
+ */
+final class FilasEnHeap extends FilasTareas {
+
+    /** Byte que indica que el código de la fila está en el mapa de desbordes del atributo. */
+    private static final int DESBORDE = 0xFF;
+
+    /** Los valores de fecha menores a este corresponden a {@link Diccionarios#fechasTexto} o a una fecha null. */
+    private static final int FECHA_TEXTO = Integer.MIN_VALUE / 2;
+
+    /** Valor de una fecha null; las fechas de texto usan los valores siguientes. */
+    private static final int FECHA_NULA = Integer.MIN_VALUE;
+
+    private Diccionarios diccionarios;
+
+    private String[] ids;
+    private String[] descripciones;
+    private byte[] tipos;
+    private byte[] estados;
+    private byte[] complejidades;
+    private int[] responsables;
+    private int[] proyectos;
+    private int[] fechas;
+
+    /** Código de cada fila cuyo byte es {@link #DESBORDE}, por atributo. */
+    private Map<Integer, Integer> tiposDesbordados;
+    private Map<Integer, Integer> estadosDesbordados;
+    private Map<Integer, Integer> complejidadesDesbordadas;
+
+    /** Filas asignadas alguna vez; las siguientes están sin usar. */
+    private int alto;
+    private int[] libres;
+    private int numLibres;
+
+    /** Orden de las tareas, como filas. */
+    private int[] orden;
+    private int tamano;
+
+    FilasEnHeap(int capacidad) {
+        this(capacidad, new Diccionarios());
+    }
+
+    private FilasEnHeap(int capacidad, Diccionarios diccionarios) {
+        this.diccionarios = diccionarios;
+        inicializar(Math.max(1, capacidad));
+    }
+
+    /**
+     * @return almacenamiento vacío que comparte los diccionarios de este, para
+     *         cargar un tramo que luego se copia aquí sin volver a codificarlo.
+     */
+    @Override
+    FilasTareas tramo() {
+        return new FilasEnHeap(16, diccionarios);
+    }
+
+    private void inicializar(int capacidad) {
+        ids = new String[capacidad];
+        descripciones = new String[capacidad];
+        tipos = new byte[capacidad];
+        estados = new byte[capacidad];
+        complejidades = new byte[capacidad];
+        responsables = new int[capacidad];
+        proyectos = new int[capacidad];
+        fechas = new int[capacidad];
+        tiposDesbordados = new HashMap<>();
+        estadosDesbordados = new HashMap<>();
+        complejidadesDesbordadas = new HashMap<>();
+        alto = 0;
+        libres = new int[0];
+        numLibres = 0;
+        orden = new int[capacidad];
+        tamano = 0;
+    }
+
+    @Override int tamano() { return tamano; }
+
+    @Override int fila(int posicion) { return orden[posicion]; }
+
+    @Override void setFila(int posicion, int fila) { orden[posicion] = fila; }
+
+    @Override
+    void insertar(int posicion, int fila) {
+        if (tamano == orden.length) orden = Arrays.copyOf(orden, crecer(orden.length, tamano + 1));
+        System.arraycopy(orden, posicion, orden, posicion + 1, tamano - posicion);
+        orden[posicion] = fila;
+        tamano++;
+    }
+
+    @Override
+    void quitar(int posicion) {
+        System.arraycopy(orden, posicion + 1, orden, posicion, tamano - posicion - 1);
+        tamano--;
+    }
+
+    @Override void setTamano(int tamano) { this.tamano = tamano; }
+
+    @Override
+    int nueva() {
+        if (numLibres > 0) return libres[--numLibres];
+        if (alto == ids.length) {
+            int capacidad = crecer(ids.length, alto + 1);
+            ids = Arrays.copyOf(ids, capacidad);
+            descripciones = Arrays.copyOf(descripciones, capacidad);
+            tipos = Arrays.copyOf(tipos, capacidad);
+            estados = Arrays.copyOf(estados, capacidad);
+            complejidades = Arrays.copyOf(complejidades, capacidad);
+            responsables = Arrays.copyOf(responsables, capacidad);
+            proyectos = Arrays.copyOf(proyectos, capacidad);
+            fechas = Arrays.copyOf(fechas, capacidad);
+        }
+        return alto++;
+    }
+
+    @Override
+    void liberar(int fila) {
+        ids[fila] = null;
+        descripciones[fila] = null;
+        tipos[fila] = (byte) codificar(diccionarios.tipos, tiposDesbordados, fila, null);
+        estados[fila] = (byte) codificar(diccionarios.estados, estadosDesbordados, fila, null);
+        complejidades[fila] = (byte) codificar(diccionarios.complejidades, complejidadesDesbordadas, fila, null);
+        responsables[fila] = NULO;
+        proyectos[fila] = NULO;
+        fechas[fila] = FECHA_NULA;
+        if (numLibres == libres.length) libres = Arrays.copyOf(libres, crecer(libres.length, numLibres + 1));
+        libres[numLibres++] = fila;
+    }
+
+    @Override
+    void escribir(int f, String id, String tipo, String descripcion, String estado,
+                  String responsable, String complejidad, String fecha, String proyectoId) {
+        ids[f] = id;
+        descripciones[f] = descripcion;
+        tipos[f] = (byte) codificar(diccionarios.tipos, tiposDesbordados, f, tipo);
+        estados[f] = (byte) codificar(diccionarios.estados, estadosDesbordados, f, estado);
+        complejidades[f] = (byte) codificar(diccionarios.complejidades, complejidadesDesbordadas, f, complejidad);
+        responsables[f] = identificador(responsable);
+        proyectos[f] = identificador(proyectoId);
+        fechas[f] = codificarFecha(fecha);
+    }
+
+    @Override String id(int f) { return ids[f]; }
+
+    @Override String tipo(int f) { return decodificar(diccionarios.tipos, tipos, tiposDesbordados, f); }
+
+    @Override String descripcion(int f) { return descripciones[f]; }
+
+    @Override String estado(int f) { return decodificar(diccionarios.estados, estados, estadosDesbordados, f); }
+
+    @Override String responsable(int f) { return valorIdentificador(responsables[f]); }
+
+    @Override String complejidad(int f) { return decodificar(diccionarios.complejidades, complejidades, complejidadesDesbordadas, f); }
+
+    @Override String proyectoId(int f) { return valorIdentificador(proyectos[f]); }
+
+    @Override
+    String fecha(int f) {
+        int dia = fechas[f];
+        if (dia == FECHA_NULA) return null;
+        if (dia < FECHA_TEXTO) return diccionarios.fechasTexto.valor(dia - FECHA_NULA - 1);
+        return fechaDeDia(dia);
+    }
+
+    @Override
+    long dia(int f) {
+        int dia = fechas[f];
+        return dia < FECHA_TEXTO ? Long.MIN_VALUE : dia;
+    }
+
+    @Override void setEstado(int f, String estado) { estados[f] = (byte) codificar(diccionarios.estados, estadosDesbordados, f, estado); }
+
+    @Override void setResponsable(int f, String responsable) { responsables[f] = identificador(responsable); }
+
+    @Override int codigoProyecto(int f) { return proyectos[f]; }
+
+    @Override int codigoResponsable(int f) { return responsables[f]; }
+
+    @Override int buscarIdentificador(String valor) { return valor == null ? -1 : diccionarios.identificadores.buscar(valor); }
+
+    @Override
+    void copiar(int f, FilasTareas destino, int d) {
+        if (!(destino instanceof FilasEnHeap) || ((FilasEnHeap) destino).diccionarios != diccionarios) {
+            super.copiar(f, destino, d);
+            return;
+        }
+        FilasEnHeap h = (FilasEnHeap) destino;
+        h.ids[d] = ids[f];
+        h.descripciones[d] = descripciones[f];
+        h.tipos[d] = (byte) copiarDesborde(tipos[f], tiposDesbordados, f, h.tiposDesbordados, d);
+        h.estados[d] = (byte) copiarDesborde(estados[f], estadosDesbordados, f, h.estadosDesbordados, d);
+        h.complejidades[d] = (byte) copiarDesborde(complejidades[f], complejidadesDesbordadas, f, h.complejidadesDesbordadas, d);
+        h.responsables[d] = responsables[f];
+        h.proyectos[d] = proyectos[f];
+        h.fechas[d] = fechas[f];
+    }
+
+    @Override
+    FilasTareas copia() {
+        FilasEnHeap c = new FilasEnHeap(1, diccionarios);
+        int n = Math.max(1, alto);
+        c.ids = Arrays.copyOf(ids, n);
+        c.descripciones = Arrays.copyOf(descripciones, n);
+        c.tipos = Arrays.copyOf(tipos, n);
+        c.estados = Arrays.copyOf(estados, n);
+        c.complejidades = Arrays.copyOf(complejidades, n);
+        c.responsables = Arrays.copyOf(responsables, n);
+        c.proyectos = Arrays.copyOf(proyectos, n);
+        c.fechas = Arrays.copyOf(fechas, n);
+        c.tiposDesbordados = new HashMap<>(tiposDesbordados);
+        c.estadosDesbordados = new HashMap<>(estadosDesbordados);
+        c.complejidadesDesbordadas = new HashMap<>(complejidadesDesbordadas);
+        c.alto = alto;
+        c.libres = Arrays.copyOf(libres, numLibres);
+        c.numLibres = numLibres;
+        c.orden = Arrays.copyOf(orden, Math.max(1, tamano));
+        c.tamano = tamano;
+        return c;
+    }
+
+    @Override
+    FilasTareas separar() {
+        FilasEnHeap otro = new FilasEnHeap(1, diccionarios);
+        otro.ids = ids;
+        otro.descripciones = descripciones;
+        otro.tipos = tipos;
+        otro.estados = estados;
+        otro.complejidades = complejidades;
+        otro.responsables = responsables;
+        otro.proyectos = proyectos;
+        otro.fechas = fechas;
+        otro.tiposDesbordados = tiposDesbordados;
+        otro.estadosDesbordados = estadosDesbordados;
+        otro.complejidadesDesbordadas = complejidadesDesbordadas;
+        otro.alto = alto;
+        otro.libres = libres;
+        otro.numLibres = numLibres;
+        otro.orden = orden;
+        otro.tamano = tamano;
+        reiniciar();
+        return otro;
+    }
+
+    @Override
+    void reiniciar() {
+        inicializar(16);
+        diccionarios = new Diccionarios();
+    }
+
+    /**
+     * Codifica un valor de tipo, estado o complejidad de una fila como byte,
+     * registrando aparte su código si no cabe.
+     *
+     * @param valor valor del atributo, o null.
+     * @return byte a guardar en la fila: 0 si el valor es null y si no el código más uno.
+     */
+    private static int codificar(Diccionario diccionario, Map<Integer, Integer> desbordados, int f, String valor) {
+        int codigo = valor == null ? -1 : diccionario.codigo(valor);
+        if (codigo + 1 < DESBORDE) {
+            if (!desbordados.isEmpty()) desbordados.remove(f);
+            return codigo + 1;
+        }
+        desbordados.put(f, codigo);
+        return DESBORDE;
+    }
+
+    private static String decodificar(Diccionario diccionario, byte[] codigos, Map<Integer, Integer> desbordados, int f) {
+        int codigo = codigos[f] & 0xFF;
+        if (codigo == 0) return null;
+        return diccionario.valor(codigo == DESBORDE ? desbordados.get(f) : codigo - 1);
+    }
+
+    private int identificador(String valor) {
+        return valor == null ? NULO : diccionarios.identificadores.codigo(valor);
+    }
+
+    private String valorIdentificador(int codigo) {
+        return codigo == NULO ? null : diccionarios.identificadores.valor(codigo);
+    }
+
+    /** Copia el desborde de una fila en otra, si lo tiene, y devuelve el byte a guardar. */
+    private static int copiarDesborde(byte codigo, Map<Integer, Integer> origen, int f,
+                                      Map<Integer, Integer> destino, int d) {
+        if ((codigo & 0xFF) == DESBORDE) destino.put(d, origen.get(f));
+        else if (!destino.isEmpty()) destino.remove(d);
+        return codigo;
+    }
+
+    /** Codifica una fecha como número de día, o como texto desplazado si no es yyyy-MM-dd. */
+    private int codificarFecha(String fecha) {
+        if (fecha == null) return FECHA_NULA;
+        long dia = diaDeFecha(fecha);
+        if (dia >= FECHA_TEXTO && dia <= Integer.MAX_VALUE) return (int) dia;
+        return FECHA_NULA + 1 + diccionarios.fechasTexto.codigo(fecha);
+    }
+
+    private static int crecer(int actual, int minimo) {
+        return Math.max(minimo, actual + (actual >> 1) + 1);
+    }
+
+    /**
+     * Diccionarios de un almacenamiento. Admiten registros desde varios hilos, por
+     * lo que los tramos de una carga paralela pueden compartirlos.
+     */
+    private static final class Diccionarios {
+
+        /** Tipos de tarea distintos. */
+        final Diccionario tipos = new Diccionario(Integer.MAX_VALUE);
+
+        /** Estados distintos. */
+        final Diccionario estados = new Diccionario(Integer.MAX_VALUE);
+
+        /** Niveles de complejidad distintos. */
+        final Diccionario complejidades = new Diccionario(Integer.MAX_VALUE);
+
+        /** Responsables e IDs de proyecto. */
+        final Diccionario identificadores = new Diccionario(Integer.MAX_VALUE);
+
+        /** Fechas que no están en formato yyyy-MM-dd y se conservan como texto. */
+        final Diccionario fechasTexto = new Diccionario(Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,560 @@
+package taller03;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Filas de tareas guardadas fuera del heap de Java, en memoria directa o en
+ * archivos mapeados en memoria.
+ * <p>
+ * Se usan cuatro regiones de bytes:
+ * </p>
+ * <ul>
+ *     <li><b>registros</b>: una cabecera y luego un registro de tamaño fijo por fila,
+ *         con referencias a las regiones de textos y de valores. Las filas liberadas
+ *         forman una lista enlazada de libres dentro de los propios registros.</li>
+ *     <li><b>orden</b>: la fila de cada posición, como enteros.</li>
+ *     <li><b>textos</b>: el ID y la descripción de cada tarea, como largo + bytes UTF-8.</li>
+ *     <li><b>valores</b>: los valores repetidos (tipo, estado, complejidad,
+ *         responsable, proyecto y fechas que no son yyyy-MM-dd), guardados una sola
+ *         vez con el mismo formato. Su posición es el código del valor.</li>
+ * </ul>
+ * Un texto null se guarda como la referencia {@link #NULO}.
+ *
+ * Así, la cantidad de objetos en el heap no depende de la cantidad de tareas.
+ * Los textos de las tareas eliminadas no se reutilizan; cuando superan la mitad
+ * de lo usado, la siguiente escritura compacta la región de textos copiando solo
+ * los de las filas ocupadas. Los valores no se mueven, por lo que sus códigos
+ * siguen siendo válidos en los índices.
+ *
+ * <p>Con archivos, la cabecera indica si se cerraron correctamente y con qué
+ * versión del archivo de texto de referencia coinciden (fecha y tamaño). Solo en
+ * ese caso el contenido se restaura al abrirlos; si el proceso terminó sin
+ * cerrarlos, el contenido se descarta.</p>
+ */
+final class FilasFueraDeHeap extends FilasTareas {
+
+    /** Identificador de formato ("TA03"). */
+    private static final int MAGICO = 0x54413033;
+    private static final int VERSION = 2;
+
+    // Cabecera de la región de registros
+    private static final int H_MAGICO = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_LIMPIO = 8;
+    private static final int H_TAMANO = 12;
+    private static final int H_ALTO = 16;
+    private static final int H_PRIMER_LIBRE = 20;
+    private static final int H_TEXTOS = 24;
+    private static final int H_BASURA = 28;
+    private static final int H_REF_FECHA = 32;
+    private static final int H_REF_TAMANO = 40;
+    private static final int H_VALORES = 48;
+    private static final int CABECERA = 64;
+
+    // Campos de cada registro
+    private static final int R_OCUPADA = 0;
+    private static final int R_FECHA_TEXTO = 1;
+    private static final int R_ID = 4;
+    private static final int R_DESCRIPCION = 8;
+    private static final int R_TIPO = 12;
+    private static final int R_ESTADO = 16;
+    private static final int R_COMPLEJIDAD = 20;
+    private static final int R_RESPONSABLE = 24;
+    private static final int R_PROYECTO = 28;
+    private static final int R_FECHA = 32;
+    private static final int R_SIGUIENTE_LIBRE = 36;
+    private static final int REGISTRO = 40;
+
+    private final Region registros;
+    private final Region orden;
+    private final Region textos;
+    private final Region valores;
+
+    private int tamano;
+    private int alto;
+    private int primerLibre;
+    private int usadoTextos;
+    private int basura;
+    private int usadoValores;
+
+    /** Valores repetidos ya guardados y su posición en la región de valores. */
+    private final Map<String, Integer> internados = new HashMap<>();
+    private final Map<Integer, String> valoresInternados = new HashMap<>();
+
+    private boolean restaurado = false;
+    private boolean limpio = false;
+
+    private FilasFueraDeHeap(Region registros, Region orden, Region textos, Region valores) {
+        this.registros = registros;
+        this.orden = orden;
+        this.textos = textos;
+        this.valores = valores;
+    }
+
+    /**
+     * Crea filas vacías en memoria directa.
+     *
+     * @return almacenamiento fuera del heap, no persistente.
+     */
+    static FilasFueraDeHeap enMemoria() {
+        FilasFueraDeHeap f = new FilasFueraDeHeap(
+                new Region(null, CABECERA + 1024 * REGISTRO),
+                new Region(null, 1024 * 4),
+                new Region(null, 64 * 1024),
+                new Region(null, 4 * 1024));
+        f.reiniciar();
+        return f;
+    }
+
+    /**
+     * Abre (o crea) filas guardadas en los archivos <code>base.filas</code>,
+     * <code>base.orden</code>, <code>base.textos</code> y <code>base.valores</code>.
+     *
+     * @param base       ruta base de los archivos.
+     * @param referencia archivo de texto con el que deben coincidir para restaurarse.
+     * @return almacenamiento mapeado en los archivos.
+     * @throws IOException si no se pueden abrir o mapear los archivos.
+     */
+    static FilasFueraDeHeap enArchivo(File base, File referencia) throws IOException {
+        FilasFueraDeHeap f = new FilasFueraDeHeap(
+                Region.mapear(new File(base.getPath() + ".filas"), CABECERA + 1024 * REGISTRO),
+                Region.mapear(new File(base.getPath() + ".orden"), 1024 * 4),
+                Region.mapear(new File(base.getPath() + ".textos"), 64 * 1024),
+                Region.mapear(new File(base.getPath() + ".valores"), 4 * 1024));
+        f.abrir(referencia);
+        return f;
+    }
+
+    /** Restaura el contenido si es válido; si no, lo descarta. Luego lo marca como en uso. */
+    private void abrir(File referencia) {
+        ByteBuffer h = registros.buf;
+        boolean valido = h.getInt(H_MAGICO) == MAGICO && h.getInt(H_VERSION) == VERSION
+                && h.getInt(H_LIMPIO) == 1
+                && h.getLong(H_REF_FECHA) == referencia.lastModified()
+                && h.getLong(H_REF_TAMANO) == referencia.length()
+                && h.getInt(H_BASURA) <= h.getInt(H_TEXTOS) / 2;
+        if (valido) {
+            tamano = h.getInt(H_TAMANO);
+            alto = h.getInt(H_ALTO);
+            primerLibre = h.getInt(H_PRIMER_LIBRE);
+            usadoTextos = h.getInt(H_TEXTOS);
+            basura = h.getInt(H_BASURA);
+            usadoValores = h.getInt(H_VALORES);
+            valido = (long) CABECERA + (long) alto * REGISTRO <= registros.buf.capacity()
+                    && tamano * 4L <= orden.buf.capacity()
+                    && usadoTextos <= textos.buf.capacity()
+                    && usadoValores <= valores.buf.capacity();
+        }
+        if (valido) {
+            for (int p = 0; p < usadoValores; p += largoTexto(valores.buf, p)) {
+                String valor = leerTexto(valores.buf, p);
+                internados.put(valor, p);
+                valoresInternados.put(p, valor);
+            }
+            restaurado = true;
+        } else {
+            reiniciar();
+        }
+        marcarSucio();
+    }
+
+    // ---- orden ----
+
+    @Override int tamano() { return tamano; }
+
+    @Override int fila(int posicion) { return orden.buf.getInt(posicion * 4); }
+
+    @Override
+    void setFila(int posicion, int fila) {
+        marcarSucio();
+        orden.buf.putInt(posicion * 4, fila);
+    }
+
+    @Override
+    void insertar(int posicion, int fila) {
+        marcarSucio();
+        orden.asegurar((tamano + 1L) * 4);
+        ByteBuffer b = orden.buf;
+        for (int i = tamano; i > posicion; i--) b.putInt(i * 4, b.getInt((i - 1) * 4));
+        b.putInt(posicion * 4, fila);
+        setTamano(tamano + 1);
+    }
+
+    @Override
+    void quitar(int posicion) {
+        marcarSucio();
+        ByteBuffer b = orden.buf;
+        for (int i = posicion; i < tamano - 1; i++) b.putInt(i * 4, b.getInt((i + 1) * 4));
+        setTamano(tamano - 1);
+    }
+
+    @Override
+    void setTamano(int tamano) {
+        marcarSucio();
+        this.tamano = tamano;
+        registros.buf.putInt(H_TAMANO, tamano);
+    }
+
+    // ---- filas ----
+
+    @Override
+    int nueva() {
+        marcarSucio();
+        int f;
+        if (primerLibre >= 0) {
+            f = primerLibre;
+            primerLibre = registros.buf.getInt(registro(f) + R_SIGUIENTE_LIBRE);
+            registros.buf.putInt(H_PRIMER_LIBRE, primerLibre);
+        } else {
+            f = alto;
+            registros.asegurar(CABECERA + (alto + 1L) * REGISTRO);
+            alto++;
+            registros.buf.putInt(H_ALTO, alto);
+        }
+        registros.buf.put(registro(f) + R_OCUPADA, (byte) 1);
+        return f;
+    }
+
+    @Override
+    void liberar(int f) {
+        marcarSucio();
+        int r = registro(f);
+        basura += largoTexto(textos.buf, registros.buf.getInt(r + R_ID))
+                + largoTexto(textos.buf, registros.buf.getInt(r + R_DESCRIPCION));
+        registros.buf.putInt(H_BASURA, basura);
+        registros.buf.put(r + R_OCUPADA, (byte) 0);
+        registros.buf.putInt(r + R_SIGUIENTE_LIBRE, primerLibre);
+        primerLibre = f;
+        registros.buf.putInt(H_PRIMER_LIBRE, primerLibre);
+    }
+
+    @Override
+    void escribir(int f, String id, String tipo, String descripcion, String estado,
+                  String responsable, String complejidad, String fecha, String proyectoId) {
+        marcarSucio();
+        if (basura > usadoTextos / 2) compactarTextos();
+        int idTexto = agregarTexto(textos, usadoTextos, id);
+        usadoTextos += largoTexto(textos.buf, idTexto);
+        int descripcionTexto = agregarTexto(textos, usadoTextos, descripcion);
+        usadoTextos += largoTexto(textos.buf, descripcionTexto);
+        registros.buf.putInt(H_TEXTOS, usadoTextos);
+        int r = registro(f);
+        ByteBuffer b = registros.buf;
+        b.putInt(r + R_ID, idTexto);
+        b.putInt(r + R_DESCRIPCION, descripcionTexto);
+        b.putInt(r + R_TIPO, internar(tipo));
+        b.putInt(r + R_ESTADO, internar(estado));
+        b.putInt(r + R_COMPLEJIDAD, internar(complejidad));
+        b.putInt(r + R_RESPONSABLE, internar(responsable));
+        b.putInt(r + R_PROYECTO, internar(proyectoId));
+        long dia = diaDeFecha(fecha);
+        boolean esTexto = dia < Integer.MIN_VALUE || dia > Integer.MAX_VALUE;
+        b.put(r + R_FECHA_TEXTO, (byte) (esTexto ? 1 : 0));
+        b.putInt(r + R_FECHA, esTexto ? internar(fecha) : (int) dia);
+    }
+
+    @Override String id(int f) { return leerTexto(textos.buf, campo(f, R_ID)); }
+
+    @Override String tipo(int f) { return valoresInternados.get(campo(f, R_TIPO)); }
+
+    @Override String descripcion(int f) { return leerTexto(textos.buf, campo(f, R_DESCRIPCION)); }
+
+    @Override String estado(int f) { return valoresInternados.get(campo(f, R_ESTADO)); }
+
+    @Override String responsable(int f) { return valoresInternados.get(campo(f, R_RESPONSABLE)); }
+
+    @Override String complejidad(int f) { return valoresInternados.get(campo(f, R_COMPLEJIDAD)); }
+
+    @Override String proyectoId(int f) { return valoresInternados.get(campo(f, R_PROYECTO)); }
+
+    @Override
+    String fecha(int f) {
+        int valor = campo(f, R_FECHA);
+        if (registros.buf.get(registro(f) + R_FECHA_TEXTO) != 0) return valoresInternados.get(valor);
+        return fechaDeDia(valor);
+    }
+
+    @Override
+    long dia(int f) {
+        if (registros.buf.get(registro(f) + R_FECHA_TEXTO) != 0) return Long.MIN_VALUE;
+        return campo(f, R_FECHA);
+    }
+
+    @Override
+    void setEstado(int f, String estado) {
+        marcarSucio();
+        registros.buf.putInt(registro(f) + R_ESTADO, internar(estado));
+    }
+
+    @Override
+    void setResponsable(int f, String responsable) {
+        marcarSucio();
+        registros.buf.putInt(registro(f) + R_RESPONSABLE, internar(responsable));
+    }
+
+    @Override int codigoProyecto(int f) { return campo(f, R_PROYECTO); }
+
+    @Override int codigoResponsable(int f) { return campo(f, R_RESPONSABLE); }
+
+    @Override int buscarIdentificador(String valor) { return internados.getOrDefault(valor, -1); }
+
+    @Override
+    FilasTareas copia() {
+        FilasFueraDeHeap c = new FilasFueraDeHeap(
+                new Region(null, CABECERA + Math.max(1, alto) * REGISTRO),
+                new Region(null, Math.max(1, tamano) * 4),
+                new Region(null, Math.max(1, usadoTextos)),
+                new Region(null, Math.max(1, usadoValores)));
+        c.registros.buf.put(0, registros.buf, 0, CABECERA + alto * REGISTRO);
+        c.orden.buf.put(0, orden.buf, 0, tamano * 4);
+        c.textos.buf.put(0, textos.buf, 0, usadoTextos);
+        c.valores.buf.put(0, valores.buf, 0, usadoValores);
+        c.tamano = tamano;
+        c.alto = alto;
+        c.primerLibre = primerLibre;
+        c.usadoTextos = usadoTextos;
+        c.basura = basura;
+        c.usadoValores = usadoValores;
+        c.internados.putAll(internados);
+        c.valoresInternados.putAll(valoresInternados);
+        return c;
+    }
+
+    @Override
+    void reiniciar() {
+        ByteBuffer h = registros.buf;
+        h.putInt(H_MAGICO, MAGICO);
+        h.putInt(H_VERSION, VERSION);
+        h.putInt(H_LIMPIO, 0);
+        limpio = false;
+        tamano = 0;
+        alto = 0;
+        primerLibre = -1;
+        usadoTextos = 0;
+        basura = 0;
+        usadoValores = 0;
+        h.putInt(H_TAMANO, tamano);
+        h.putInt(H_ALTO, alto);
+        h.putInt(H_PRIMER_LIBRE, primerLibre);
+        h.putInt(H_TEXTOS, usadoTextos);
+        h.putInt(H_BASURA, basura);
+        h.putInt(H_VALORES, usadoValores);
+        internados.clear();
+        valoresInternados.clear();
+    }
+
+    @Override
+    boolean fueraDeHeap() {
+        return true;
+    }
+
+    @Override
+    boolean tomarRestaurado() {
+        boolean r = restaurado;
+        restaurado = false;
+        return r;
+    }
+
+    /**
+     * Fuerza el contenido a disco, lo marca como consistente con el archivo de
+     * referencia y cierra los archivos. Antes compacta los textos si hace falta,
+     * para que el contenido pueda restaurarse. Un cambio posterior vuelve a
+     * marcarlo como en uso; si necesita ampliar una región, se vuelve a abrir su archivo.
+     */
+    @Override
+    void cerrar(File referencia) throws IOException {
+        if (registros.canal == null) return;
+        if (basura > usadoTextos / 2) compactarTextos();
+        orden.cerrar();
+        textos.cerrar();
+        valores.cerrar();
+        registros.forzar();
+        ByteBuffer h = registros.buf;
+        h.putLong(H_REF_FECHA, referencia.lastModified());
+        h.putLong(H_REF_TAMANO, referencia.length());
+        h.putInt(H_LIMPIO, 1);
+        registros.cerrar();
+        limpio = true;
+    }
+
+    /** Marca el archivo como en uso antes del primer cambio posterior a {@link #cerrar}. */
+    private void marcarSucio() {
+        if (!limpio && registros.buf.getInt(H_LIMPIO) == 0) return;
+        limpio = false;
+        registros.buf.putInt(H_LIMPIO, 0);
+        registros.forzar();
+    }
+
+    private static int registro(int f) {
+        return CABECERA + f * REGISTRO;
+    }
+
+    private int campo(int f, int desplazamiento) {
+        return registros.buf.getInt(registro(f) + desplazamiento);
+    }
+
+    private int internar(String valor) {
+        if (valor == null) return NULO;
+        Integer posicion = internados.get(valor);
+        if (posicion != null) return posicion;
+        int p = agregarTexto(valores, usadoValores, valor);
+        usadoValores += largoTexto(valores.buf, p);
+        registros.buf.putInt(H_VALORES, usadoValores);
+        internados.put(valor, p);
+        valoresInternados.put(p, valor);
+        return p;
+    }
+
+    /**
+     * Reescribe la región de textos desde el inicio solo con los textos de las filas
+     * ocupadas y actualiza sus referencias.
+     */
+    private void compactarTextos() {
+        ByteBuffer anteriores = textos.vaciar(usadoTextos, usadoTextos - basura);
+        usadoTextos = 0;
+        basura = 0;
+        ByteBuffer b = registros.buf;
+        for (int f = 0; f < alto; f++) {
+            int r = registro(f);
+            if (b.get(r + R_OCUPADA) == 0) continue;
+            b.putInt(r + R_ID, copiarTexto(anteriores, b.getInt(r + R_ID)));
+            b.putInt(r + R_DESCRIPCION, copiarTexto(anteriores, b.getInt(r + R_DESCRIPCION)));
+        }
+        b.putInt(H_TEXTOS, usadoTextos);
+        b.putInt(H_BASURA, basura);
+    }
+
+    /** Copia al final de la región de textos un texto de la región anterior. */
+    private int copiarTexto(ByteBuffer anteriores, int p) {
+        if (p == NULO) return NULO;
+        int largo = largoTexto(anteriores, p);
+        int nuevo = usadoTextos;
+        textos.asegurar((long) nuevo + largo);
+        textos.buf.put(nuevo, anteriores, p, largo);
+        usadoTextos = nuevo + largo;
+        return nuevo;
+    }
+
+    /**
+     * Escribe un texto en la posición indicada de una región, ampliándola si hace falta.
+     *
+     * @return posición del texto, o {@link #NULO} si es null.
+     */
+    private static int agregarTexto(Region region, int p, String valor) {
+        if (valor == null) return NULO;
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        region.asegurar((long) p + 4 + bytes.length);
+        region.buf.putInt(p, bytes.length);
+        region.buf.put(p + 4, bytes);
+        return p;
+    }
+
+    private static String leerTexto(ByteBuffer b, int p) {
+        if (p == NULO) return null;
+        byte[] bytes = new byte[b.getInt(p)];
+        b.get(p + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int largoTexto(ByteBuffer b, int p) {
+        if (p == NULO) return 0;
+        return 4 + b.getInt(p);
+    }
+
+    /**
+     * Región de bytes que crece a demanda, en memoria directa o mapeada sobre un archivo.
+     */
+    private static final class Region {
+
+        private final File archivo;
+        private FileChannel canal;
+        private ByteBuffer buf;
+
+        /** Crea una región en memoria directa. */
+        Region(FileChannel canal, int capacidad) {
+            this.archivo = null;
+            this.canal = canal;
+            this.buf = ByteBuffer.allocateDirect(capacidad);
+        }
+
+        private Region(File archivo, FileChannel canal, ByteBuffer buf) {
+            this.archivo = archivo;
+            this.canal = canal;
+            this.buf = buf;
+        }
+
+        /** Mapea un archivo completo, con al menos la capacidad indicada. */
+        static Region mapear(File archivo, int capacidad) throws IOException {
+            FileChannel canal = abrirCanal(archivo);
+            long tamano = Math.min(Integer.MAX_VALUE, Math.max(canal.size(), capacidad));
+            return new Region(archivo, canal, canal.map(FileChannel.MapMode.READ_WRITE, 0, tamano));
+        }
+
+        private static FileChannel abrirCanal(File archivo) throws IOException {
+            return FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        /** Amplía la región, duplicando su tamaño, hasta tener al menos los bytes indicados. */
+        void asegurar(long bytes) {
+            if (bytes <= buf.capacity()) return;
+            if (bytes > Integer.MAX_VALUE) throw new IllegalStateException("Se superó la capacidad del almacén de tareas");
+            int capacidad = (int) Math.min(Integer.MAX_VALUE, Math.max(bytes, buf.capacity() * 2L));
+            if (canal != null) {
+                try {
+                    if (!canal.isOpen()) canal = abrirCanal(archivo);
+                    buf = canal.map(FileChannel.MapMode.READ_WRITE, 0, capacidad);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            } else {
+                ByteBuffer nuevo = ByteBuffer.allocateDirect(capacidad);
+                nuevo.put(0, buf, 0, buf.capacity());
+                buf = nuevo;
+            }
+        }
+
+        /**
+         * Deja la región vacía para reescribirla desde el inicio.
+         *
+         * @param usados    bytes en uso.
+         * @param capacidad capacidad del nuevo búfer en memoria directa.
+         * @return búfer con el contenido anterior. En memoria directa es el búfer
+         *         anterior, y la región pasa a uno nuevo de la capacidad indicada;
+         *         mapeada, es una copia de los bytes en uso.
+         */
+        ByteBuffer vaciar(int usados, int capacidad) {
+            ByteBuffer anterior = buf;
+            if (canal != null) {
+                anterior = ByteBuffer.allocateDirect(Math.max(1, usados));
+                anterior.put(0, buf, 0, usados);
+            } else {
+                buf = ByteBuffer.allocateDirect(Math.max(1, capacidad));
+            }
+            return anterior;
+        }
+
+        /** Escribe en disco los cambios de una región mapeada. */
+        void forzar() {
+            if (buf instanceof MappedByteBuffer) ((MappedByteBuffer) buf).force();
+        }
+
+        /**
+         * Escribe en disco los cambios y cierra el archivo. El mapeo sigue siendo
+         * válido después de cerrarlo.
+         */
+        void cerrar() throws IOException {
+            forzar();
+            if (canal != null) canal.close();
+        }
+    }
+}
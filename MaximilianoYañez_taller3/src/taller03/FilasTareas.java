@@ -0,0 +1,203 @@
+package taller03;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Almacenamiento de las filas de un {@link TareaStore}.
+ * <p>
+ * Cada tarea ocupa una fila que se asigna al agregarla y no cambia mientras la
+ * tarea exista; las filas liberadas se reutilizan (lista de libres). Aparte se
+ * guarda el orden de las tareas como una secuencia de filas, que es lo único que
+ * se modifica al insertar, eliminar u ordenar.
+ * </p>
+ *
+ * Hay dos implementaciones: {@link FilasEnHeap}, con un arreglo por atributo, y
+ * {@link FilasFueraDeHeap}, que guarda los registros fuera del heap de Java, en
+ * memoria directa o en archivos mapeados.
+ */
+abstract class FilasTareas {
+
+    /**
+     * Código de un responsable o proyecto null. Es distinto de -1, que
+     * {@link #buscarIdentificador} usa para un valor que ninguna fila tiene.
+     */
+    static final int NULO = -2;
+
+    // ---- orden de las tareas ----
+
+    /** @return cantidad de tareas. */
+    abstract int tamano();
+
+    /** @return fila de la tarea que está en la posición indicada. */
+    abstract int fila(int posicion);
+
+    /** Asigna la fila de una posición existente. */
+    abstract void setFila(int posicion, int fila);
+
+    /** Inserta una fila en la posición indicada, desplazando las siguientes. */
+    abstract void insertar(int posicion, int fila);
+
+    /** Quita la posición indicada, desplazando las siguientes. */
+    abstract void quitar(int posicion);
+
+    /** Cambia la cantidad de tareas, después de reescribir el orden con {@link #setFila}. */
+    abstract void setTamano(int tamano);
+
+    // ---- filas ----
+
+    /** @return una fila libre, reutilizando las liberadas antes de crecer. */
+    abstract int nueva();
+
+    /** Libera una fila para reutilizarla. */
+    abstract void liberar(int fila);
+
+    /** Escribe todos los atributos de una fila. */
+    abstract void escribir(int fila, String id, String tipo, String descripcion, String estado,
+                           String responsable, String complejidad, String fecha, String proyectoId);
+
+    abstract String id(int fila);
+
+    abstract String tipo(int fila);
+
+    abstract String descripcion(int fila);
+
+    abstract String estado(int fila);
+
+    abstract String responsable(int fila);
+
+    abstract String complejidad(int fila);
+
+    abstract String fecha(int fila);
+
+    abstract String proyectoId(int fila);
+
+    /** @return número de día de la fecha de la fila, o {@link Long#MIN_VALUE} si se guarda como texto o es null. */
+    abstract long dia(int fila);
+
+    abstract void setEstado(int fila, String estado);
+
+    abstract void setResponsable(int fila, String responsable);
+
+    /** @return código del proyecto de la fila, comparable con {@link #buscarIdentificador}. */
+    abstract int codigoProyecto(int fila);
+
+    /** @return código del responsable de la fila, comparable con {@link #buscarIdentificador}. */
+    abstract int codigoResponsable(int fila);
+
+    /** @return código de un responsable o ID de proyecto, o -1 si ninguna fila lo usa. */
+    abstract int buscarIdentificador(String valor);
+
+    /**
+     * Copia una fila en otro almacenamiento.
+     *
+     * @param fila        fila de origen.
+     * @param destino     almacenamiento de destino.
+     * @param filaDestino fila ya asignada en el destino.
+     */
+    void copiar(int fila, FilasTareas destino, int filaDestino) {
+        destino.escribir(filaDestino, id(fila), tipo(fila), descripcion(fila), estado(fila),
+                responsable(fila), complejidad(fila), fecha(fila), proyectoId(fila));
+    }
+
+    /** @return copia en memoria del contenido actual, del mismo tipo de almacenamiento. */
+    abstract FilasTareas copia();
+
+    /**
+     * Entrega el contenido actual en otro almacenamiento y deja este vacío, con las
+     * mismas filas, para que las tareas existentes sigan siendo válidas.
+     */
+    FilasTareas separar() {
+        FilasTareas c = copia();
+        reiniciar();
+        return c;
+    }
+
+    /** Deja el almacenamiento vacío. */
+    abstract void reiniciar();
+
+    /**
+     * @return almacenamiento vacío en el heap para cargar un tramo de una carga
+     *         paralela que luego se incorpora a este.
+     */
+    FilasTareas tramo() {
+        return new FilasEnHeap(16);
+    }
+
+    /**
+     * @return true si las filas están fuera del heap; al vaciar el almacén cada vista
+     *         se lleva una copia de su fila en lugar de separar el contenido completo.
+     */
+    boolean fueraDeHeap() {
+        return false;
+    }
+
+    /**
+     * Indica, una sola vez, si el contenido se recuperó de un archivo guardado
+     * correctamente en la ejecución anterior.
+     *
+     * @return true si el contenido restaurado es válido y no hace falta recargarlo.
+     */
+    boolean tomarRestaurado() {
+        return false;
+    }
+
+    /**
+     * Termina el uso del almacenamiento. Los almacenamientos en archivo quedan
+     * marcados como consistentes con el archivo de referencia.
+     *
+     * @param referencia archivo de texto con los mismos datos.
+     * @throws IOException si falla la escritura.
+     */
+    void cerrar(File referencia) throws IOException {
+    }
+
+    /**
+     * Convierte una fecha yyyy-MM-dd a número de día.
+     *
+     * @return número de día, o {@link Long#MIN_VALUE} si el texto es null o no es
+     *         una fecha en ese formato exacto y debe guardarse como texto.
+     */
+    static long diaDeFecha(String fecha) {
+        if (fecha == null) return Long.MIN_VALUE;
+        long iso = diaIso(fecha);
+        if (iso != Long.MIN_VALUE) return iso;
+        try {
+            LocalDate d = LocalDate.parse(fecha);
+            if (d.toString().equals(fecha)) return d.toEpochDay();
+        } catch (DateTimeParseException e) {
+            // se conserva como texto
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /** @return texto yyyy-MM-dd de un número de día. */
+    static String fechaDeDia(int dia) {
+        return LocalDate.ofEpochDay(dia).toString();
+    }
+
+    /**
+     * Lee directamente una fecha yyyy-MM-dd con año de cuatro cifras, el caso
+     * habitual, sin pasar por el parser general de fechas.
+     */
+    private static long diaIso(String fecha) {
+        if (fecha.length() != 10 || fecha.charAt(4) != '-' || fecha.charAt(7) != '-') return Long.MIN_VALUE;
+        int anio = 0, mes = 0, dia = 0;
+        for (int i = 0; i < 10; i++) {
+            if (i == 4 || i == 7) continue;
+            int d = fecha.charAt(i) - '0';
+            if (d < 0 || d > 9) return Long.MIN_VALUE;
+            if (i < 4) anio = anio * 10 + d;
+            else if (i < 7) mes = mes * 10 + d;
+            else dia = dia * 10 + d;
+        }
+        try {
+            return LocalDate.of(anio, mes, dia).toEpochDay();
+        } catch (DateTimeException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+}
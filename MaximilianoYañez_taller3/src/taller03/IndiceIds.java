@@ -0,0 +1,126 @@
+package taller03;
+
+import java.util.Arrays;
+
+/**
+ * Índice por ID (clave primaria) de las filas de un {@link TareaStore}.
+ * <p>
+ * Es una tabla hash de direccionamiento abierto con sondeo lineal guardada en dos
+ * arreglos de enteros: el hash del ID y la fila. El ID no se copia; al encontrar
+ * un hash igual se compara con el ID guardado en la fila. Así el índice no crea
+ * objetos por tarea, lo que importa cuando las filas están fuera del heap.
+ * </p>
+ *
+ * Si al crearlo hay IDs repetidos (por ejemplo en un tareas.txt editado a mano),
+ * se indexa la primera fila de cada ID.
+ */
+final class IndiceIds {
+
+    private static final int VACIA = -1;
+
+    private final FilasTareas filas;
+    private int[] hashes;
+    private int[] filasTabla;
+    private int cantidad;
+
+    /**
+     * Crea el índice con las filas que ya están en orden.
+     *
+     * @param filas filas del almacén.
+     */
+    IndiceIds(FilasTareas filas) {
+        this.filas = filas;
+        int n = filas.tamano();
+        inicializar(capacidadPara(n));
+        for (int p = 0; p < n; p++) agregar(filas.fila(p));
+    }
+
+    /**
+     * Busca la fila de un ID.
+     *
+     * @return fila, o -1 si no hay una tarea con ese ID.
+     */
+    int buscar(String id) {
+        int h = dispersar(id.hashCode());
+        int mascara = filasTabla.length - 1;
+        for (int i = h & mascara; filasTabla[i] != VACIA; i = (i + 1) & mascara) {
+            if (hashes[i] == h && filas.id(filasTabla[i]).equals(id)) return filasTabla[i];
+        }
+        return -1;
+    }
+
+    /**
+     * Agrega una fila ya escrita.
+     *
+     * @return false si ya había una fila con el mismo ID (no se agrega).
+     */
+    boolean agregar(int f) {
+        if ((cantidad + 1) * 2 > filasTabla.length) crecer();
+        String id = filas.id(f);
+        int h = dispersar(id.hashCode());
+        int mascara = filasTabla.length - 1;
+        int i = h & mascara;
+        for (; filasTabla[i] != VACIA; i = (i + 1) & mascara) {
+            if (hashes[i] == h && filas.id(filasTabla[i]).equals(id)) return false;
+        }
+        hashes[i] = h;
+        filasTabla[i] = f;
+        cantidad++;
+        return true;
+    }
+
+    /** Quita una fila, antes de liberarla, si es la indexada para su ID. */
+    void quitar(int f) {
+        int h = dispersar(filas.id(f).hashCode());
+        int mascara = filasTabla.length - 1;
+        int i = h & mascara;
+        while (filasTabla[i] != f) {
+            if (filasTabla[i] == VACIA) return;
+            i = (i + 1) & mascara;
+        }
+        // Borrado con desplazamiento hacia atrás: se adelantan las entradas
+        // siguientes del mismo grupo que quedarían inalcanzables.
+        int hueco = i;
+        for (int j = (i + 1) & mascara; filasTabla[j] != VACIA; j = (j + 1) & mascara) {
+            int ideal = hashes[j] & mascara;
+            if (((j - ideal) & mascara) >= ((j - hueco) & mascara)) {
+                hashes[hueco] = hashes[j];
+                filasTabla[hueco] = filasTabla[j];
+                hueco = j;
+            }
+        }
+        filasTabla[hueco] = VACIA;
+        cantidad--;
+    }
+
+    private void crecer() {
+        int[] h = hashes;
+        int[] f = filasTabla;
+        inicializar(f.length * 2);
+        int mascara = filasTabla.length - 1;
+        for (int j = 0; j < f.length; j++) {
+            if (f[j] == VACIA) continue;
+            int i = h[j] & mascara;
+            while (filasTabla[i] != VACIA) i = (i + 1) & mascara;
+            hashes[i] = h[j];
+            filasTabla[i] = f[j];
+        }
+    }
+
+    private void inicializar(int capacidad) {
+        hashes = new int[capacidad];
+        filasTabla = new int[capacidad];
+        Arrays.fill(filasTabla, VACIA);
+    }
+
+    /** @return potencia de dos con una ocupación de a lo más la mitad. */
+    private static int capacidadPara(int n) {
+        int c = 16;
+        while (c < n * 2L) c <<= 1;
+        return c;
+    }
+
+    private static int dispersar(int h) {
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,285 @@
+package taller03;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Índices secundarios de las filas de un {@link TareaStore}: por proyecto y por
+ * responsable, este último sin distinguir mayúsculas de minúsculas.
+ * <p>
+ * Cada clave tiene un grupo con sus filas, sin orden. Para cada fila se guarda su
+ * lugar dentro del grupo, de modo que agregar y quitar una fila cuesta O(1).
+ * </p>
+ *
+ * Además se cuenta cuántas tareas tiene cada responsable por día, para verificar
+ * en O(1) la regla de una tarea por responsable y día, y se agrupan las filas por
+ * fecha (número de día) en un mapa ordenado para las consultas por rango de fechas.
+ * Las fechas que no están en formato yyyy-MM-dd no entran en estos dos índices.
+ */
+final class IndiceTareas {
+
+    private final FilasTareas filas;
+
+    /** Filas por código de proyecto. */
+    private final Map<Integer, Grupo> porProyecto = new HashMap<>();
+
+    /** Filas por responsable normalizado (ver {@link #normalizar}). */
+    private final Map<String, Grupo> porResponsable = new HashMap<>();
+
+    /** Responsable normalizado de cada código, para no recalcularlo en cada fila. */
+    private final Map<Integer, String> normalizados = new HashMap<>();
+
+    /** Número asignado a cada responsable normalizado, para formar las claves de {@link #porDia}. */
+    private final Map<String, Integer> numeros = new HashMap<>();
+
+    /** Cantidad de tareas por responsable y día (ver {@link #claveDia}). */
+    private final Map<Long, Integer> porDia = new HashMap<>();
+
+    /** Filas por número de día de su fecha, ordenadas por día. */
+    private final NavigableMap<Integer, Grupo> porFecha = new TreeMap<>();
+
+    /** Lugar de cada fila dentro de su grupo de proyecto, de responsable y de fecha. */
+    private int[] lugarProyecto = new int[0];
+    private int[] lugarResponsable = new int[0];
+    private int[] lugarFecha = new int[0];
+
+    /**
+     * Crea los índices con las filas que ya están en orden.
+     *
+     * @param filas filas del almacén.
+     */
+    IndiceTareas(FilasTareas filas) {
+        this.filas = filas;
+        for (int p = 0, n = filas.tamano(); p < n; p++) agregar(filas.fila(p));
+    }
+
+    /** Agrega una fila ya escrita a ambos índices. */
+    void agregar(int f) {
+        asegurar(f);
+        porProyecto.computeIfAbsent(filas.codigoProyecto(f), k -> new Grupo()).agregar(f, lugarProyecto);
+        long dia = filas.dia(f);
+        if (dia != Long.MIN_VALUE) porFecha.computeIfAbsent((int) dia, k -> new Grupo()).agregar(f, lugarFecha);
+        agregarResponsable(f);
+    }
+
+    /** Quita una fila de ambos índices, antes de liberarla. */
+    void quitar(int f) {
+        int codigo = filas.codigoProyecto(f);
+        Grupo g = porProyecto.get(codigo);
+        if (g != null && g.quitar(f, lugarProyecto)) porProyecto.remove(codigo);
+        long dia = filas.dia(f);
+        if (dia != Long.MIN_VALUE) {
+            Grupo d = porFecha.get((int) dia);
+            if (d != null && d.quitar(f, lugarFecha)) porFecha.remove((int) dia);
+        }
+        quitarResponsable(f);
+    }
+
+    /** Quita la fila del grupo de su responsable actual, antes de cambiarlo. */
+    void quitarResponsable(int f) {
+        String clave = clave(f);
+        Grupo g = porResponsable.get(clave);
+        if (g != null && g.quitar(f, lugarResponsable)) porResponsable.remove(clave);
+        long dia = filas.dia(f);
+        if (dia != Long.MIN_VALUE) porDia.computeIfPresent(claveDia(clave, dia), (k, n) -> n == 1 ? null : n - 1);
+    }
+
+    /** Agrega la fila al grupo de su responsable actual, después de cambiarlo. */
+    void agregarResponsable(int f) {
+        asegurar(f);
+        String clave = clave(f);
+        porResponsable.computeIfAbsent(clave, k -> new Grupo()).agregar(f, lugarResponsable);
+        long dia = filas.dia(f);
+        if (dia != Long.MIN_VALUE) porDia.merge(claveDia(clave, dia), 1, Integer::sum);
+    }
+
+    /**
+     * @param responsable responsable, sin distinguir mayúsculas de minúsculas.
+     * @param dia         número de día.
+     * @return cantidad de tareas del responsable con esa fecha.
+     */
+    int tareasEnDia(String responsable, long dia) {
+        Integer numero = numeros.get(normalizar(responsable));
+        return numero == null ? 0 : porDia.getOrDefault(claveDia(numero, dia), 0);
+    }
+
+    private long claveDia(String clave, long dia) {
+        return claveDia(numeros.computeIfAbsent(clave, k -> numeros.size()), dia);
+    }
+
+    private static long claveDia(int numero, long dia) {
+        return (long) numero << 32 | (dia & 0xFFFFFFFFL);
+    }
+
+    /** @return filas de un proyecto, sin orden. */
+    int[] filasDeProyecto(String proyectoId) {
+        int codigo = filas.buscarIdentificador(proyectoId);
+        if (codigo < 0) return new int[0];
+        Grupo g = porProyecto.get(codigo);
+        return g == null ? new int[0] : Arrays.copyOf(g.filas, g.cantidad);
+    }
+
+    /** @return filas de un responsable, sin distinguir mayúsculas de minúsculas y sin orden. */
+    int[] filasDeResponsable(String responsable) {
+        Grupo g = porResponsable.get(normalizar(responsable));
+        return g == null ? new int[0] : Arrays.copyOf(g.filas, g.cantidad);
+    }
+
+    /** @return cantidad de filas de un proyecto. */
+    int cantidadDeProyecto(String proyectoId) {
+        int codigo = filas.buscarIdentificador(proyectoId);
+        Grupo g = codigo < 0 ? null : porProyecto.get(codigo);
+        return g == null ? 0 : g.cantidad;
+    }
+
+    /** @return cantidad de filas de un responsable, sin distinguir mayúsculas de minúsculas. */
+    int cantidadDeResponsable(String responsable) {
+        Grupo g = porResponsable.get(normalizar(responsable));
+        return g == null ? 0 : g.cantidad;
+    }
+
+    /**
+     * @return cantidad de filas con fecha entre los días indicados (inclusive),
+     *         contando solo hasta superar el tope.
+     */
+    int cantidadEntre(long desde, long hasta, int tope) {
+        return contar(rango(desde, hasta), tope);
+    }
+
+    /** @return true si el responsable de la fila, normalizado, es el indicado. */
+    boolean esDeResponsable(int f, String normalizado) {
+        return clave(f).equals(normalizado);
+    }
+
+    /** @return filas con fecha entre los días indicados (inclusive), sin orden. */
+    int[] filasEntre(long desde, long hasta) {
+        NavigableMap<Integer, Grupo> rango = rango(desde, hasta);
+        int[] resultado = new int[contar(rango, Integer.MAX_VALUE)];
+        int n = 0;
+        for (Grupo g : rango.values()) {
+            System.arraycopy(g.filas, 0, resultado, n, g.cantidad);
+            n += g.cantidad;
+        }
+        return resultado;
+    }
+
+    /**
+     * @return filas de un proyecto con fecha entre los días indicados (inclusive),
+     *         sin orden. Se recorre el menor entre el grupo del proyecto y el rango.
+     */
+    int[] filasDeProyectoEntre(String proyectoId, long desde, long hasta) {
+        int codigo = filas.buscarIdentificador(proyectoId);
+        Grupo g = codigo < 0 ? null : porProyecto.get(codigo);
+        if (g == null) return new int[0];
+        NavigableMap<Integer, Grupo> rango = rango(desde, hasta);
+        if (g.cantidad <= contar(rango, g.cantidad)) return filtrarPorDia(g, desde, hasta);
+        int[] resultado = new int[g.cantidad];
+        int n = 0;
+        for (Grupo d : rango.values()) {
+            for (int i = 0; i < d.cantidad; i++) {
+                if (filas.codigoProyecto(d.filas[i]) == codigo) resultado[n++] = d.filas[i];
+            }
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    /**
+     * @return filas de un responsable (sin distinguir mayúsculas) con fecha entre
+     *         los días indicados (inclusive), sin orden.
+     */
+    int[] filasDeResponsableEntre(String responsable, long desde, long hasta) {
+        String clave = normalizar(responsable);
+        Grupo g = porResponsable.get(clave);
+        if (g == null) return new int[0];
+        NavigableMap<Integer, Grupo> rango = rango(desde, hasta);
+        if (g.cantidad <= contar(rango, g.cantidad)) return filtrarPorDia(g, desde, hasta);
+        int[] resultado = new int[g.cantidad];
+        int n = 0;
+        for (Grupo d : rango.values()) {
+            for (int i = 0; i < d.cantidad; i++) {
+                if (clave(d.filas[i]).equals(clave)) resultado[n++] = d.filas[i];
+            }
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    /** @return grupos de fecha entre los días indicados, acotados al rango de int. */
+    private NavigableMap<Integer, Grupo> rango(long desde, long hasta) {
+        int d = (int) Math.max(desde, Integer.MIN_VALUE);
+        int h = (int) Math.min(hasta, Integer.MAX_VALUE);
+        if (d > h) return new TreeMap<>();
+        return porFecha.subMap(d, true, h, true);
+    }
+
+    /** @return filas de los grupos del rango, contando como máximo hasta el tope indicado. */
+    private static int contar(NavigableMap<Integer, Grupo> rango, int tope) {
+        long n = 0;
+        for (Grupo g : rango.values()) {
+            n += g.cantidad;
+            if (n > tope) break;
+        }
+        return (int) Math.min(n, Integer.MAX_VALUE);
+    }
+
+    /** @return filas del grupo con fecha entre los días indicados (inclusive). */
+    private int[] filtrarPorDia(Grupo g, long desde, long hasta) {
+        int[] resultado = new int[g.cantidad];
+        int n = 0;
+        for (int i = 0; i < g.cantidad; i++) {
+            long dia = filas.dia(g.filas[i]);
+            if (dia != Long.MIN_VALUE && dia >= desde && dia <= hasta) resultado[n++] = g.filas[i];
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    /** @return responsable normalizado de una fila. */
+    private String clave(int f) {
+        return normalizados.computeIfAbsent(filas.codigoResponsable(f), c -> normalizar(filas.responsable(f)));
+    }
+
+    /**
+     * Normaliza un texto de modo que dos textos normalizados son iguales si y solo
+     * si {@link String#equalsIgnoreCase} los considera iguales. Un texto null
+     * queda como null.
+     */
+    static String normalizar(String texto) {
+        if (texto == null) return null;
+        char[] c = texto.toCharArray();
+        for (int i = 0; i < c.length; i++) c[i] = Character.toLowerCase(Character.toUpperCase(c[i]));
+        return new String(c);
+    }
+
+    private void asegurar(int f) {
+        if (f < lugarProyecto.length) return;
+        int capacidad = Math.max(f + 1, lugarProyecto.length + (lugarProyecto.length >> 1) + 16);
+        lugarProyecto = Arrays.copyOf(lugarProyecto, capacidad);
+        lugarResponsable = Arrays.copyOf(lugarResponsable, capacidad);
+        lugarFecha = Arrays.copyOf(lugarFecha, capacidad);
+    }
+
+    /** Filas de una clave, con intercambio con la última al quitar. */
+    private static final class Grupo {
+
+        private int[] filas = new int[4];
+        private int cantidad;
+
+        void agregar(int f, int[] lugar) {
+            if (cantidad == filas.length) filas = Arrays.copyOf(filas, cantidad * 2);
+            lugar[f] = cantidad;
+            filas[cantidad++] = f;
+        }
+
+        /** @return true si el grupo quedó vacío. */
+        boolean quitar(int f, int[] lugar) {
+            int i = lugar[f];
+            if (i >= cantidad || filas[i] != f) return cantidad == 0;
+            int ultima = filas[--cantidad];
+            filas[i] = ultima;
+            lugar[ultima] = i;
+            return cantidad == 0;
+        }
+    }
+}
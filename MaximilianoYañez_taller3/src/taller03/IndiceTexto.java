@@ -0,0 +1,314 @@
+package taller03;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Índice invertido de las descripciones de las filas de un {@link TareaStore}.
+ * <p>
+ * Cada descripción se divide en términos (secuencias de letras y dígitos) sin
+ * mayúsculas ni tildes, de modo que "Exportación" y "exportacion" son el mismo
+ * término. Para cada término se guardan las filas que lo contienen y cuántas veces
+ * aparece en cada una, de modo que una búsqueda se resuelve y se ordena solo con
+ * esas listas, sin volver a leer las descripciones. Para buscar
+ * por prefijo se mantiene además una copia ordenada de los términos, que se crea
+ * en la primera búsqueda por prefijo; los términos nuevos se agregan a un conjunto
+ * aparte que se incorpora a la copia cuando crece.
+ * </p>
+ *
+ * Al quitar una fila solo se marca como eliminada; sus entradas se descartan al
+ * buscar y el índice se reconstruye cuando las entradas eliminadas superan a las
+ * vigentes. Como una fila liberada puede reutilizarse con otra descripción, cada
+ * entrada lleva la generación de la fila al agregarse y solo cuenta si coincide
+ * con la generación actual.
+ */
+final class IndiceTexto {
+
+    /** Entradas eliminadas desde las que se considera reconstruir el índice. */
+    private static final int MINIMO_PARA_RECONSTRUIR = 1024;
+
+    /**
+     * Letra sin tildes y en minúsculas de cada carácter latino, calculada una vez
+     * para no descomponer cada descripción. Los signos diacríticos sueltos quedan
+     * en 0 y se omiten.
+     */
+    private static final char[] PLEGADOS = new char[0x370];
+
+    static {
+        for (char c = 0; c < PLEGADOS.length; c++) {
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            String d = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            PLEGADOS[c] = Character.toLowerCase(d.charAt(0));
+        }
+    }
+
+    private final FilasTareas filas;
+
+    /** Filas por término. */
+    private final Map<String, Lista> porTermino = new HashMap<>();
+
+    /** Frecuencia de cada término de la fila que se está agregando; se reutiliza entre filas. */
+    private final Map<String, Integer> frecuencias = new HashMap<>();
+
+    /** Términos ordenados, para buscar por prefijo; null hasta la primera búsqueda por prefijo. */
+    private String[] ordenados;
+
+    /** Términos agregados después de ordenar. */
+    private final TreeSet<String> nuevos = new TreeSet<>();
+
+    /** Filas indexadas que siguen en el almacén. */
+    private final BitSet vigentes = new BitSet();
+
+    /** Generación de cada fila; aumenta cada vez que la fila se agrega. */
+    private int[] generaciones = new int[16];
+
+    /** Cantidad de términos distintos de cada fila, para contar las entradas eliminadas. */
+    private int[] distintos = new int[16];
+
+    /**
+     * Coincidencias y términos cumplidos por fila durante una búsqueda. Se reutilizan
+     * entre búsquedas y se dejan en cero al terminar cada una.
+     */
+    private int[] totales = new int[0];
+    private int[] cumplidos = new int[0];
+
+    private long entradas;
+    private long eliminadas;
+
+    /**
+     * Crea el índice con las filas que ya están en orden.
+     *
+     * @param filas filas del almacén.
+     */
+    IndiceTexto(FilasTareas filas) {
+        this.filas = filas;
+        for (int p = 0, n = filas.tamano(); p < n; p++) agregar(filas.fila(p));
+    }
+
+    /** Agrega una fila ya escrita. */
+    void agregar(int f) {
+        if (f >= generaciones.length) {
+            int capacidad = Math.max(f + 1, generaciones.length * 2);
+            generaciones = Arrays.copyOf(generaciones, capacidad);
+            distintos = Arrays.copyOf(distintos, capacidad);
+        }
+        int generacion = ++generaciones[f];
+        vigentes.set(f);
+        for (String t : terminos(filas.descripcion(f))) frecuencias.merge(t, 1, Integer::sum);
+        for (Map.Entry<String, Integer> e : frecuencias.entrySet()) {
+            String t = e.getKey();
+            Lista l = porTermino.get(t);
+            if (l == null) {
+                porTermino.put(t, l = new Lista());
+                if (ordenados != null) nuevos.add(t);
+            }
+            l.agregar(f, generacion, e.getValue());
+        }
+        int cantidad = frecuencias.size();
+        frecuencias.clear();
+        distintos[f] = cantidad;
+        entradas += cantidad;
+    }
+
+    /** Marca una fila como eliminada, antes de liberarla. */
+    void quitar(int f) {
+        if (!vigentes.get(f)) return;
+        vigentes.clear(f);
+        eliminadas += distintos[f];
+        if (eliminadas > MINIMO_PARA_RECONSTRUIR && eliminadas * 2 > entradas) reconstruir();
+    }
+
+    /**
+     * Busca las filas cuya descripción contiene los términos de la consulta.
+     *
+     * @param consulta términos de {@link #consulta}.
+     * @param todos    true si deben estar todos los términos, false si basta uno.
+     * @return filas encontradas y cantidad de coincidencias de cada una, sin orden.
+     */
+    synchronized Resultado buscar(List<Termino> consulta, boolean todos) {
+        Resultado r = new Resultado();
+        if (consulta.isEmpty()) return r;
+        int k = consulta.size();
+        // Con todos los términos se empieza por el menos frecuente: los demás solo
+        // suman en las filas que ya cumplieron los términos anteriores.
+        List<Collection<Lista>> fuentes = new ArrayList<>(k);
+        for (Termino t : consulta) fuentes.add(listas(t));
+        if (todos) fuentes.sort((a, b) -> Long.compare(cantidad(a), cantidad(b)));
+        long candidatas = todos ? cantidad(fuentes.get(0)) : 0;
+        if (!todos) for (Collection<Lista> listas : fuentes) candidatas += cantidad(listas);
+        if (candidatas == 0) return r;
+
+        if (totales.length < generaciones.length) {
+            totales = new int[generaciones.length];
+            cumplidos = new int[generaciones.length];
+        }
+        boolean exigir = todos && k > 1;
+        int exigidos = k;
+        for (int i = 0; i < k && exigidos == k; i++) {
+            boolean alguna = false;
+            for (Lista l : fuentes.get(i)) {
+                for (int j = 0; j < l.cantidad; j++) {
+                    int f = l.filas[j];
+                    // descarta primero las filas a las que ya les faltó un término
+                    if (exigir && cumplidos[f] < i) continue;
+                    if (l.generaciones[j] != generaciones[f] || !vigentes.get(f)) continue;
+                    // un término con prefijo puede aportar varias listas a la misma fila
+                    if (exigir) cumplidos[f] = i + 1;
+                    if (totales[f] == 0) r.agregar(f, 0);
+                    totales[f] += l.frecuencias[j];
+                    alguna = true;
+                }
+            }
+            if (todos && !alguna) exigidos = k + 1;
+        }
+
+        // Toda fila con coincidencias o términos cumplidos quedó en el resultado.
+        int n = 0;
+        for (int i = 0; i < r.cantidad; i++) {
+            int f = r.filas[i];
+            boolean cumple = !exigir ? exigidos == k : cumplidos[f] == exigidos;
+            if (cumple) {
+                r.filas[n] = f;
+                r.aciertos[n++] = totales[f];
+            }
+            totales[f] = 0;
+            cumplidos[f] = 0;
+        }
+        r.cantidad = n;
+        return r;
+    }
+
+    private static long cantidad(Collection<Lista> listas) {
+        long n = 0;
+        for (Lista l : listas) n += l.cantidad;
+        return n;
+    }
+
+    private Collection<Lista> listas(Termino t) {
+        if (!t.prefijo) {
+            Lista l = porTermino.get(t.texto);
+            return l == null ? Collections.emptyList() : Collections.singletonList(l);
+        }
+        if (ordenados == null || nuevos.size() > MINIMO_PARA_RECONSTRUIR && nuevos.size() > ordenados.length / 8) {
+            ordenados = porTermino.keySet().toArray(new String[0]);
+            Arrays.sort(ordenados);
+            nuevos.clear();
+        }
+        String hasta = t.texto + Character.MAX_VALUE;
+        List<Lista> listas = new ArrayList<>();
+        int i = Arrays.binarySearch(ordenados, t.texto);
+        for (i = i < 0 ? -i - 1 : i; i < ordenados.length && ordenados[i].compareTo(hasta) <= 0; i++) {
+            listas.add(porTermino.get(ordenados[i]));
+        }
+        for (String s : nuevos.subSet(t.texto, true, hasta, true)) listas.add(porTermino.get(s));
+        return listas;
+    }
+
+    private void reconstruir() {
+        porTermino.clear();
+        ordenados = null;
+        nuevos.clear();
+        entradas = 0;
+        eliminadas = 0;
+        for (int f = vigentes.nextSetBit(0); f >= 0; f = vigentes.nextSetBit(f + 1)) agregar(f);
+    }
+
+    /**
+     * Divide un texto en términos: secuencias de letras y dígitos, en minúsculas y
+     * sin tildes ni otros signos diacríticos. Un texto null no tiene términos.
+     */
+    static List<String> terminos(String texto) {
+        List<String> terminos = new ArrayList<>();
+        if (texto == null) return terminos;
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c < PLEGADOS.length) {
+                c = PLEGADOS[c];
+            } else if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            } else {
+                c = Character.toLowerCase(c);
+            }
+            if (c != 0 && Character.isLetterOrDigit(c)) {
+                actual.append(c);
+            } else if (c != 0 && actual.length() > 0) {
+                terminos.add(actual.toString());
+                actual.setLength(0);
+            }
+        }
+        if (actual.length() > 0) terminos.add(actual.toString());
+        return terminos;
+    }
+
+    /**
+     * Convierte el texto de una búsqueda en términos. Una palabra terminada en '*'
+     * busca los términos que empiezan con ella.
+     */
+    static List<Termino> consulta(String texto) {
+        List<Termino> consulta = new ArrayList<>();
+        for (String palabra : texto.trim().split("\\s+")) {
+            boolean prefijo = palabra.endsWith("*");
+            List<String> terminos = terminos(palabra);
+            for (int i = 0; i < terminos.size(); i++) {
+                consulta.add(new Termino(terminos.get(i), prefijo && i == terminos.size() - 1));
+            }
+        }
+        return consulta;
+    }
+
+    /** Término de una búsqueda. */
+    static final class Termino {
+        final String texto;
+        final boolean prefijo;
+
+        Termino(String texto, boolean prefijo) {
+            this.texto = texto;
+            this.prefijo = prefijo;
+        }
+    }
+
+    /** Filas encontradas por una búsqueda, con sus coincidencias. */
+    static final class Resultado {
+        int[] filas = new int[16];
+        int[] aciertos = new int[16];
+        int cantidad;
+
+        private void agregar(int f, int n) {
+            if (cantidad == filas.length) {
+                filas = Arrays.copyOf(filas, cantidad * 2);
+                aciertos = Arrays.copyOf(aciertos, cantidad * 2);
+            }
+            filas[cantidad] = f;
+            aciertos[cantidad++] = n;
+        }
+    }
+
+    /** Filas de un término, en orden de inserción, con su generación y las apariciones del término. */
+    private static final class Lista {
+
+        private int[] filas = new int[2];
+        private int[] generaciones = new int[2];
+        private int[] frecuencias = new int[2];
+        private int cantidad;
+
+        void agregar(int f, int generacion, int frecuencia) {
+            if (cantidad == filas.length) {
+                filas = Arrays.copyOf(filas, cantidad * 2);
+                generaciones = Arrays.copyOf(generaciones, cantidad * 2);
+                frecuencias = Arrays.copyOf(frecuencias, cantidad * 2);
+            }
+            filas[cantidad] = f;
+            generaciones[cantidad] = generacion;
+            frecuencias[cantidad++] = frecuencia;
+        }
+    }
+}
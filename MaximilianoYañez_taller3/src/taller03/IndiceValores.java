@@ -0,0 +1,120 @@
+package taller03;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Índices por valor de los atributos con pocos valores distintos (estado, tipo y
+ * complejidad) de las filas de un {@link TareaStore}.
+ * <p>
+ * Cada valor tiene un {@link MapaBits} con sus filas, de modo que una combinación
+ * como "bugs pendientes de complejidad Alta" se resuelve intersecando conjuntos y
+ * su cantidad se obtiene sin leer las filas ni crear tareas.
+ * </p>
+ *
+ * Los conjuntos se guardan por el valor tal como está en la fila; las consultas
+ * no distinguen mayúsculas de minúsculas y unen los conjuntos de los valores que
+ * solo difieren en eso.
+ */
+final class IndiceValores {
+
+    /** Atributo indexado. */
+    enum Atributo {
+        ESTADO, TIPO, COMPLEJIDAD;
+
+        String de(FilasTareas filas, int f) {
+            switch (this) {
+                case ESTADO: return filas.estado(f);
+                case TIPO: return filas.tipo(f);
+                default: return filas.complejidad(f);
+            }
+        }
+    }
+
+    private final FilasTareas filas;
+
+    /** Filas de cada valor de cada atributo, en orden de aparición del valor. */
+    private final Map<Atributo, Map<String, MapaBits>> porValor = new EnumMap<>(Atributo.class);
+
+    /** Todas las filas indexadas, para calcular complementos. */
+    private final MapaBits todas = new MapaBits();
+
+    /**
+     * Crea los índices con las filas que ya están en orden.
+     *
+     * @param filas filas del almacén.
+     */
+    IndiceValores(FilasTareas filas) {
+        this.filas = filas;
+        for (Atributo a : Atributo.values()) porValor.put(a, new LinkedHashMap<>());
+        for (int p = 0, n = filas.tamano(); p < n; p++) agregar(filas.fila(p));
+    }
+
+    /** Agrega una fila ya escrita. */
+    void agregar(int f) {
+        todas.agregar(f);
+        for (Atributo a : Atributo.values()) agregar(a, f);
+    }
+
+    /** Quita una fila, antes de liberarla. */
+    void quitar(int f) {
+        todas.quitar(f);
+        for (Atributo a : Atributo.values()) quitar(a, f);
+    }
+
+    /** Agrega la fila al conjunto de su valor actual del atributo, después de cambiarlo. */
+    void agregar(Atributo a, int f) {
+        porValor.get(a).computeIfAbsent(a.de(filas, f), k -> new MapaBits()).agregar(f);
+    }
+
+    /** Quita la fila del conjunto de su valor actual del atributo, antes de cambiarlo. */
+    void quitar(Atributo a, int f) {
+        MapaBits m = porValor.get(a).get(a.de(filas, f));
+        if (m != null) m.quitar(f);
+    }
+
+    /**
+     * @return filas cuyo atributo tiene alguno de los valores indicados, sin
+     *         distinguir mayúsculas de minúsculas. Puede ser el conjunto del
+     *         índice, por lo que no debe modificarse.
+     */
+    MapaBits filas(Atributo a, String... valores) {
+        MapaBits r = null;
+        for (Map.Entry<String, MapaBits> e : porValor.get(a).entrySet()) {
+            for (String v : valores) {
+                if (v.equalsIgnoreCase(e.getKey())) {
+                    r = r == null ? e.getValue() : MapaBits.o(r, e.getValue());
+                    break;
+                }
+            }
+        }
+        return r == null ? new MapaBits() : r;
+    }
+
+    /** @return todas las filas indexadas. No debe modificarse. */
+    MapaBits todas() {
+        return todas;
+    }
+
+    /**
+     * Cuenta las filas por valor del atributo, sin distinguir mayúsculas de
+     * minúsculas. Cada grupo se muestra con la primera forma del valor que apareció.
+     *
+     * @param a       atributo.
+     * @param limitar filas a contar, o null para contar todas.
+     * @return cantidad de filas por valor, sin los valores sin filas.
+     */
+    Map<String, Integer> conteos(Atributo a, MapaBits limitar) {
+        Map<String, String> nombres = new LinkedHashMap<>();
+        Map<String, Integer> conteos = new LinkedHashMap<>();
+        for (Map.Entry<String, MapaBits> e : porValor.get(a).entrySet()) {
+            MapaBits m = limitar == null ? e.getValue() : MapaBits.y(e.getValue(), limitar);
+            int n = m.cardinalidad();
+            if (n == 0) continue;
+            String nombre = nombres.computeIfAbsent(IndiceTareas.normalizar(e.getKey()), k -> e.getKey());
+            conteos.merge(nombre, n, Integer::sum);
+        }
+        return conteos;
+    }
+}
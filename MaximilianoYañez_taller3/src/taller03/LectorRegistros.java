@@ -0,0 +1,310 @@
+package taller03;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Lector de los archivos de datos del sistema (usuarios.txt, proyectos.txt y tareas.txt).
+ * <p>
+ * Lee el archivo por bloques con {@link FileChannel#read} sobre un buffer directo que se
+ * reutiliza, y recorre los bytes buscando los separadores <code>|</code> y los saltos de
+ * línea, sin pasar por {@link java.util.Scanner} ni por expresiones regulares. No se mapea
+ * el archivo: un mapeo queda vivo hasta que el recolector libera el buffer y, en Windows,
+ * impide reemplazar el archivo mientras tanto. Cada línea se entrega al
+ * {@link Receptor} como un {@link Registro}, que solo decodifica a {@link String} los
+ * campos que efectivamente se solicitan.
+ * </p>
+ *
+ * Se respetan las mismas reglas que el parser original:
+ * <ul>
+ *     <li>Las líneas vacías o que comienzan con <code>#</code> se ignoran.</li>
+ *     <li>Cada campo se entrega sin espacios al inicio ni al final.</li>
+ *     <li>Los campos vacíos al final de la línea no se cuentan, igual que en {@link String#split}.</li>
+ * </ul>
+ *
+ * Además permite una lectura en paralelo ({@link #leerEnParalelo}) que divide el
+ * archivo en tramos cortados en saltos de línea y los procesa en el
+ * {@link ForkJoinPool} común, conservando el orden original de las líneas.
+ */
+public final class LectorRegistros {
+
+    /** Tamaño inicial del buffer de lectura; crece solo si una línea no cabe en él. */
+    private static final int BLOQUE = 1 << 20;
+
+    /** Tamaño mínimo de un tramo en la lectura paralela; bajo este valor no conviene dividir. */
+    private static final long TRAMO_MINIMO = 1L << 20;
+
+    /**
+     * Receptor de los registros leídos desde un archivo.
+     */
+    public interface Receptor {
+
+        /**
+         * Procesa un registro. El objeto recibido se reutiliza para la siguiente
+         * línea, por lo que no debe conservarse fuera de este método.
+         *
+         * @param r registro correspondiente a una línea del archivo.
+         */
+        void registro(Registro r);
+    }
+
+    /**
+     * Vista sobre una línea del buffer de lectura. Guarda solo las posiciones de
+     * cada campo y crea el {@link String} recién cuando se pide con {@link #campo(int)}.
+     */
+    public static final class Registro {
+
+        private ByteBuffer buffer;
+        private int[] inicios = new int[8];
+        private int[] fines = new int[8];
+        private int campos;
+        private byte[] auxiliar = new byte[256];
+
+        private Registro() {}
+
+        /** @return cantidad de campos de la línea actual. */
+        public int numCampos() { return campos; }
+
+        /**
+         * Decodifica el campo indicado como texto UTF-8.
+         *
+         * @param i índice del campo, comenzando en 0.
+         * @return contenido del campo sin espacios al inicio ni al final.
+         */
+        public String campo(int i) {
+            if (i < 0 || i >= campos) throw new IndexOutOfBoundsException(i);
+            int largo = fines[i] - inicios[i];
+            if (largo == 0) return "";
+            if (auxiliar.length < largo) auxiliar = new byte[Math.max(largo, auxiliar.length * 2)];
+            buffer.get(inicios[i], auxiliar, 0, largo);
+            return new String(auxiliar, 0, largo, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Recorre las líneas contenidas en los primeros <code>limite</code> bytes del buffer.
+         */
+        private void recorrer(ByteBuffer buf, int limite, Receptor receptor) {
+            this.buffer = buf;
+            int inicioLinea = 0;
+            for (int i = 0; i < limite; i++) {
+                if (buf.get(i) == '\n') {
+                    procesarLinea(inicioLinea, i, receptor);
+                    inicioLinea = i + 1;
+                }
+            }
+            if (inicioLinea < limite) procesarLinea(inicioLinea, limite, receptor);
+        }
+
+        private void procesarLinea(int desde, int hasta, Receptor receptor) {
+            while (desde < hasta && esEspacio(buffer.get(desde))) desde++;
+            while (hasta > desde && esEspacio(buffer.get(hasta - 1))) hasta--;
+            if (desde == hasta || buffer.get(desde) == '#') return;
+
+            campos = 0;
+            int inicioCampo = desde;
+            for (int i = desde; i <= hasta; i++) {
+                if (i == hasta || buffer.get(i) == '|') {
+                    agregarCampo(inicioCampo, i);
+                    inicioCampo = i + 1;
+                }
+            }
+            // String.split descarta los campos vacíos finales
+            while (campos > 0 && fines[campos - 1] == inicios[campos - 1]) campos--;
+            for (int c = 0; c < campos; c++) {
+                int a = inicios[c], b = fines[c];
+                while (a < b && esEspacio(buffer.get(a))) a++;
+                while (b > a && esEspacio(buffer.get(b - 1))) b--;
+                inicios[c] = a;
+                fines[c] = b;
+            }
+            receptor.registro(this);
+        }
+
+        private void agregarCampo(int desde, int hasta) {
+            if (campos == inicios.length) {
+                inicios = Arrays.copyOf(inicios, campos * 2);
+                fines = Arrays.copyOf(fines, campos * 2);
+            }
+            inicios[campos] = desde;
+            fines[campos] = hasta;
+            campos++;
+        }
+
+        private static boolean esEspacio(byte b) {
+            return (b & 0xFF) <= ' ';
+        }
+    }
+
+    private LectorRegistros() {}
+
+    /**
+     * Lee el archivo completo entregando cada línea válida al receptor.
+     *
+     * @param archivo  archivo a leer.
+     * @param receptor receptor de los registros.
+     * @throws IOException si el archivo no puede abrirse o leerse.
+     */
+    public static void leer(File archivo, Receptor receptor) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            leer(canal, 0, canal.size(), receptor);
+        }
+    }
+
+    /**
+     * Lee el archivo completo en paralelo y convierte cada registro con la función
+     * indicada. El archivo se divide en tramos que terminan en un salto de línea,
+     * cada tramo se procesa en un hilo del {@link ForkJoinPool} común y los resultados
+     * se unen en el mismo orden en que aparecen en el archivo.
+     *
+     * @param archivo   archivo a leer.
+     * @param conversor función que transforma un registro en un objeto; si retorna
+     *                  <code>null</code> el registro se descarta. Debe poder ejecutarse
+     *                  desde varios hilos a la vez.
+     * @param <T>       tipo de los objetos resultantes.
+     * @return lista con los objetos convertidos, en el orden del archivo.
+     * @throws IOException si el archivo no puede abrirse o leerse.
+     */
+    public static <T> List<T> leerEnParalelo(File archivo, Function<Registro, T> conversor) throws IOException {
+        List<ArrayList<T>> tramos = leerEnParalelo(archivo, ArrayList<T>::new, (lista, r) -> {
+            T obj = conversor.apply(r);
+            if (obj != null) lista.add(obj);
+        });
+        List<T> resultado = new ArrayList<>();
+        for (List<T> tramo : tramos) resultado.addAll(tramo);
+        return resultado;
+    }
+
+    /**
+     * Lee el archivo completo en paralelo acumulando los registros de cada tramo en
+     * un contenedor propio del tramo, creado con <code>nuevo</code>. Permite cargar
+     * los datos directamente en estructuras que no admiten escrituras concurrentes.
+     *
+     * @param archivo archivo a leer.
+     * @param nuevo   crea el contenedor de un tramo.
+     * @param agregar agrega un registro al contenedor de su tramo.
+     * @param <A>     tipo del contenedor.
+     * @return contenedores de los tramos, en el orden del archivo.
+     * @throws IOException si el archivo no puede abrirse o leerse.
+     */
+    public static <A> List<A> leerEnParalelo(File archivo, Supplier<A> nuevo,
+                                             BiConsumer<A, Registro> agregar) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            int partes = (int) Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism() * 4L,
+                                                    tamano / TRAMO_MINIMO));
+            long[] limites = dividir(canal, partes);
+
+            List<ForkJoinTask<A>> tramos = new ArrayList<>(partes);
+            for (int i = 0; i < partes; i++) {
+                long desde = limites[i];
+                long hasta = limites[i + 1];
+                tramos.add(ForkJoinPool.commonPool().submit(() -> leerTramo(canal, desde, hasta, nuevo, agregar)));
+            }
+
+            List<A> resultado = new ArrayList<>(partes);
+            for (ForkJoinTask<A> tramo : tramos) {
+                try {
+                    resultado.add(tramo.join());
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            return resultado;
+        }
+    }
+
+    private static <A> A leerTramo(FileChannel canal, long desde, long hasta,
+                                   Supplier<A> nuevo, BiConsumer<A, Registro> agregar) {
+        A contenedor = nuevo.get();
+        try {
+            leer(canal, desde, hasta, r -> agregar.accept(contenedor, r));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return contenedor;
+    }
+
+    /**
+     * Calcula los límites de <code>partes</code> tramos de tamaño similar, moviendo cada
+     * corte hasta justo después del siguiente salto de línea.
+     *
+     * @return arreglo de <code>partes + 1</code> posiciones crecientes; el tramo i es
+     *         <code>[limites[i], limites[i + 1])</code> y puede quedar vacío.
+     */
+    static long[] dividir(FileChannel canal, int partes) throws IOException {
+        long tamano = canal.size();
+        long[] limites = new long[partes + 1];
+        limites[partes] = tamano;
+        ByteBuffer bloque = ByteBuffer.allocate(8192);
+        for (int i = 1; i < partes; i++) {
+            long corte = Math.max(limites[i - 1], tamano * i / partes);
+            limites[i] = inicioDeLinea(canal, corte, tamano, bloque);
+        }
+        return limites;
+    }
+
+    /** Retorna la primera posición >= <code>pos</code> que comienza una línea. */
+    private static long inicioDeLinea(FileChannel canal, long pos, long tamano, ByteBuffer bloque) throws IOException {
+        if (pos == 0) return 0;
+        long actual = pos - 1;
+        while (actual < tamano) {
+            bloque.clear();
+            int leidos = canal.read(bloque, actual);
+            if (leidos <= 0) break;
+            for (int i = 0; i < leidos; i++) {
+                if (bloque.get(i) == '\n') return actual + i + 1;
+            }
+            actual += leidos;
+        }
+        return tamano;
+    }
+
+    /**
+     * Lee el tramo <code>[desde, hasta)</code> de un canal. El tramo se carga por bloques
+     * en un buffer directo propio de la llamada; cada bloque se recorre hasta su último
+     * salto de línea y la línea incompleta se traslada al inicio del siguiente bloque.
+     */
+    static void leer(FileChannel canal, long desde, long hasta, Receptor receptor) throws IOException {
+        Registro registro = new Registro();
+        ByteBuffer buf = ByteBuffer.allocateDirect((int) Math.max(1, Math.min(hasta - desde, BLOQUE)));
+        long posicion = desde;
+        int pendientes = 0;
+        while (posicion < hasta) {
+            if (pendientes == buf.capacity()) {
+                // una línea no cabe en el buffer: se duplica conservando lo ya leído
+                ByteBuffer mayor = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE - 8, buf.capacity() * 2L));
+                if (mayor.capacity() == pendientes) throw new IOException("Línea demasiado larga en la posición " + posicion);
+                buf.clear().limit(pendientes);
+                mayor.put(buf);
+                buf = mayor;
+            }
+            buf.limit((int) Math.min(buf.capacity(), pendientes + (hasta - posicion))).position(pendientes);
+            int leidos = canal.read(buf, posicion);
+            if (leidos < 0) break;
+            posicion += leidos;
+            int llenos = pendientes + leidos;
+            int limite = llenos;
+            if (posicion < hasta) {
+                while (limite > 0 && buf.get(limite - 1) != '\n') limite--;
+            }
+            registro.recorrer(buf, limite, receptor);
+            pendientes = llenos - limite;
+            buf.limit(llenos).position(limite);
+            buf.compact();
+        }
+        if (pendientes > 0) registro.recorrer(buf, pendientes, receptor);
+    }
+}
@@ -0,0 +1,345 @@
+package taller03;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto comprimido de números de fila, para los índices por valor de
+ * {@link IndiceValores}.
+ * <p>
+ * Los números se agrupan en bloques de 65536 según sus 16 bits altos. Cada bloque
+ * guarda sus 16 bits bajos en un arreglo ordenado mientras tiene pocos elementos
+ * y en un mapa de 65536 bits cuando tiene más de {@value #LIMITE_ARREGLO}, de modo
+ * que un bloque nunca ocupa más de 8 KB. La intersección, la unión y la
+ * diferencia se calculan bloque a bloque; entre dos mapas de bits se hacen de a 64
+ * filas por operación.
+ * </p>
+ *
+ * Los métodos {@link #y}, {@link #o} y {@link #sin} crean un conjunto nuevo y no
+ * modifican los operandos.
+ */
+final class MapaBits {
+
+    /** Elementos desde los que un bloque pasa de arreglo a mapa de bits. */
+    static final int LIMITE_ARREGLO = 4096;
+
+    private static final int PALABRAS = 1024;
+
+    /** 16 bits altos de cada bloque, en orden. */
+    private char[] claves = new char[4];
+
+    /** Bloque de cada clave: {@link Arreglo} o {@link Bits}. */
+    private Bloque[] bloques = new Bloque[4];
+
+    private int cantidadBloques;
+
+    /** Agrega una fila; no hace nada si ya estaba. */
+    void agregar(int f) {
+        char alta = (char) (f >>> 16);
+        int i = buscarBloque(alta);
+        if (i < 0) {
+            i = -i - 1;
+            insertarBloque(i, alta, new Arreglo());
+        }
+        bloques[i] = bloques[i].agregar((char) f);
+    }
+
+    /** Quita una fila; no hace nada si no estaba. */
+    void quitar(int f) {
+        int i = buscarBloque((char) (f >>> 16));
+        if (i < 0) return;
+        Bloque b = bloques[i].quitar((char) f);
+        if (b.cantidad() == 0) {
+            System.arraycopy(claves, i + 1, claves, i, cantidadBloques - i - 1);
+            System.arraycopy(bloques, i + 1, bloques, i, cantidadBloques - i - 1);
+            bloques[--cantidadBloques] = null;
+        } else {
+            bloques[i] = b;
+        }
+    }
+
+    /** @return true si la fila está en el conjunto. */
+    boolean contiene(int f) {
+        int i = buscarBloque((char) (f >>> 16));
+        return i >= 0 && bloques[i].contiene((char) f);
+    }
+
+    /** @return cantidad de filas del conjunto. */
+    int cardinalidad() {
+        int n = 0;
+        for (int i = 0; i < cantidadBloques; i++) n += bloques[i].cantidad();
+        return n;
+    }
+
+    /** @return filas del conjunto, en orden creciente. */
+    int[] filas() {
+        int[] resultado = new int[cardinalidad()];
+        int n = 0;
+        for (int i = 0; i < cantidadBloques; i++) n = bloques[i].copiar(resultado, n, claves[i] << 16);
+        return resultado;
+    }
+
+    /** @return intersección de dos conjuntos. */
+    static MapaBits y(MapaBits a, MapaBits b) {
+        MapaBits r = new MapaBits();
+        int i = 0, j = 0;
+        while (i < a.cantidadBloques && j < b.cantidadBloques) {
+            if (a.claves[i] < b.claves[j]) {
+                i++;
+            } else if (a.claves[i] > b.claves[j]) {
+                j++;
+            } else {
+                Bloque c = a.bloques[i].y(b.bloques[j]);
+                if (c.cantidad() > 0) r.insertarBloque(r.cantidadBloques, a.claves[i], c);
+                i++;
+                j++;
+            }
+        }
+        return r;
+    }
+
+    /** @return unión de dos conjuntos. */
+    static MapaBits o(MapaBits a, MapaBits b) {
+        MapaBits r = new MapaBits();
+        int i = 0, j = 0;
+        while (i < a.cantidadBloques || j < b.cantidadBloques) {
+            if (j == b.cantidadBloques || i < a.cantidadBloques && a.claves[i] < b.claves[j]) {
+                r.insertarBloque(r.cantidadBloques, a.claves[i], a.bloques[i].copia());
+                i++;
+            } else if (i == a.cantidadBloques || a.claves[i] > b.claves[j]) {
+                r.insertarBloque(r.cantidadBloques, b.claves[j], b.bloques[j].copia());
+                j++;
+            } else {
+                r.insertarBloque(r.cantidadBloques, a.claves[i], a.bloques[i].o(b.bloques[j]));
+                i++;
+                j++;
+            }
+        }
+        return r;
+    }
+
+    /** @return filas de <code>a</code> que no están en <code>b</code>. */
+    static MapaBits sin(MapaBits a, MapaBits b) {
+        MapaBits r = new MapaBits();
+        int j = 0;
+        for (int i = 0; i < a.cantidadBloques; i++) {
+            while (j < b.cantidadBloques && b.claves[j] < a.claves[i]) j++;
+            Bloque c = j < b.cantidadBloques && b.claves[j] == a.claves[i]
+                    ? a.bloques[i].sin(b.bloques[j]) : a.bloques[i].copia();
+            if (c.cantidad() > 0) r.insertarBloque(r.cantidadBloques, a.claves[i], c);
+        }
+        return r;
+    }
+
+    private int buscarBloque(char alta) {
+        return Arrays.binarySearch(claves, 0, cantidadBloques, alta);
+    }
+
+    private void insertarBloque(int i, char alta, Bloque b) {
+        if (cantidadBloques == claves.length) {
+            claves = Arrays.copyOf(claves, cantidadBloques * 2);
+            bloques = Arrays.copyOf(bloques, cantidadBloques * 2);
+        }
+        System.arraycopy(claves, i, claves, i + 1, cantidadBloques - i);
+        System.arraycopy(bloques, i, bloques, i + 1, cantidadBloques - i);
+        claves[i] = alta;
+        bloques[i] = b;
+        cantidadBloques++;
+    }
+
+    // ========================================================================
+    //  BLOQUES
+    // ========================================================================
+
+    /** 16 bits bajos de las filas de un bloque. Las operaciones pueden cambiar la representación. */
+    private abstract static class Bloque {
+        abstract int cantidad();
+        abstract boolean contiene(char x);
+        abstract Bloque agregar(char x);
+        abstract Bloque quitar(char x);
+        abstract int copiar(int[] destino, int desde, int alta);
+        abstract Bloque copia();
+        abstract Bits comoBits();
+
+        Bloque y(Bloque otro) {
+            if (this instanceof Arreglo a) return a.filtrar(otro, true);
+            if (otro instanceof Arreglo b) return b.filtrar(this, true);
+            Bits r = ((Bits) this).copia();
+            long[] p = r.palabras;
+            long[] q = ((Bits) otro).palabras;
+            for (int k = 0; k < PALABRAS; k++) p[k] &= q[k];
+            return r.ajustar();
+        }
+
+        Bloque o(Bloque otro) {
+            if (this instanceof Arreglo a && otro instanceof Arreglo b
+                    && a.cantidad + b.cantidad <= LIMITE_ARREGLO) {
+                return a.unir(b);
+            }
+            Bits r = comoBits();
+            if (r == this) r = r.copia();
+            long[] p = r.palabras;
+            long[] q = otro.comoBits().palabras;
+            for (int k = 0; k < PALABRAS; k++) p[k] |= q[k];
+            return r.ajustar();
+        }
+
+        Bloque sin(Bloque otro) {
+            if (this instanceof Arreglo a) return a.filtrar(otro, false);
+            Bits r = ((Bits) this).copia();
+            long[] p = r.palabras;
+            if (otro instanceof Arreglo b) {
+                for (int k = 0; k < b.cantidad; k++) p[b.valores[k] >>> 6] &= ~(1L << b.valores[k]);
+            } else {
+                long[] q = ((Bits) otro).palabras;
+                for (int k = 0; k < PALABRAS; k++) p[k] &= ~q[k];
+            }
+            return r.ajustar();
+        }
+    }
+
+    /** Bloque con pocos elementos: arreglo ordenado. */
+    private static final class Arreglo extends Bloque {
+        private char[] valores = new char[4];
+        private int cantidad;
+
+        @Override int cantidad() { return cantidad; }
+
+        @Override boolean contiene(char x) {
+            return Arrays.binarySearch(valores, 0, cantidad, x) >= 0;
+        }
+
+        @Override Bloque agregar(char x) {
+            int i = Arrays.binarySearch(valores, 0, cantidad, x);
+            if (i >= 0) return this;
+            if (cantidad == LIMITE_ARREGLO) return comoBits().agregar(x);
+            i = -i - 1;
+            if (cantidad == valores.length) valores = Arrays.copyOf(valores, Math.min(cantidad * 2, LIMITE_ARREGLO));
+            System.arraycopy(valores, i, valores, i + 1, cantidad - i);
+            valores[i] = x;
+            cantidad++;
+            return this;
+        }
+
+        @Override Bloque quitar(char x) {
+            int i = Arrays.binarySearch(valores, 0, cantidad, x);
+            if (i < 0) return this;
+            System.arraycopy(valores, i + 1, valores, i, cantidad - i - 1);
+            cantidad--;
+            return this;
+        }
+
+        @Override int copiar(int[] destino, int desde, int alta) {
+            for (int k = 0; k < cantidad; k++) destino[desde++] = alta | valores[k];
+            return desde;
+        }
+
+        @Override Arreglo copia() {
+            Arreglo c = new Arreglo();
+            c.valores = Arrays.copyOf(valores, Math.max(cantidad, 4));
+            c.cantidad = cantidad;
+            return c;
+        }
+
+        @Override Bits comoBits() {
+            Bits b = new Bits();
+            for (int k = 0; k < cantidad; k++) b.palabras[valores[k] >>> 6] |= 1L << valores[k];
+            b.cantidad = cantidad;
+            return b;
+        }
+
+        /** @return elementos que están (o no están) en el otro bloque. */
+        Arreglo filtrar(Bloque otro, boolean estan) {
+            Arreglo r = new Arreglo();
+            r.valores = new char[Math.max(cantidad, 4)];
+            for (int k = 0; k < cantidad; k++) {
+                if (otro.contiene(valores[k]) == estan) r.valores[r.cantidad++] = valores[k];
+            }
+            return r;
+        }
+
+        Arreglo unir(Arreglo otro) {
+            Arreglo r = new Arreglo();
+            r.valores = new char[Math.max(cantidad + otro.cantidad, 4)];
+            int i = 0, j = 0;
+            while (i < cantidad || j < otro.cantidad) {
+                char x;
+                if (j == otro.cantidad || i < cantidad && valores[i] < otro.valores[j]) {
+                    x = valores[i++];
+                } else if (i == cantidad || valores[i] > otro.valores[j]) {
+                    x = otro.valores[j++];
+                } else {
+                    x = valores[i++];
+                    j++;
+                }
+                r.valores[r.cantidad++] = x;
+            }
+            return r;
+        }
+    }
+
+    /** Bloque con muchos elementos: un bit por valor. */
+    private static final class Bits extends Bloque {
+        private final long[] palabras = new long[PALABRAS];
+        private int cantidad;
+
+        @Override int cantidad() { return cantidad; }
+
+        @Override boolean contiene(char x) {
+            return (palabras[x >>> 6] & 1L << x) != 0;
+        }
+
+        @Override Bloque agregar(char x) {
+            if (!contiene(x)) {
+                palabras[x >>> 6] |= 1L << x;
+                cantidad++;
+            }
+            return this;
+        }
+
+        @Override Bloque quitar(char x) {
+            if (!contiene(x)) return this;
+            palabras[x >>> 6] &= ~(1L << x);
+            cantidad--;
+            return cantidad <= LIMITE_ARREGLO / 2 ? comoArreglo() : this;
+        }
+
+        @Override int copiar(int[] destino, int desde, int alta) {
+            for (int k = 0; k < PALABRAS; k++) {
+                for (long w = palabras[k]; w != 0; w &= w - 1) {
+                    destino[desde++] = alta | k << 6 | Long.numberOfTrailingZeros(w);
+                }
+            }
+            return desde;
+        }
+
+        @Override Bits copia() {
+            Bits c = new Bits();
+            System.arraycopy(palabras, 0, c.palabras, 0, PALABRAS);
+            c.cantidad = cantidad;
+            return c;
+        }
+
+        @Override Bits comoBits() {
+            return this;
+        }
+
+        /** Recalcula la cantidad tras operar palabra a palabra y vuelve a arreglo si quedó chico. */
+        Bloque ajustar() {
+            int n = 0;
+            for (long w : palabras) n += Long.bitCount(w);
+            cantidad = n;
+            return n <= LIMITE_ARREGLO ? comoArreglo() : this;
+        }
+
+        private Arreglo comoArreglo() {
+            Arreglo a = new Arreglo();
+            a.valores = new char[Math.max(cantidad, 4)];
+            for (int k = 0; k < PALABRAS; k++) {
+                for (long w = palabras[k]; w != 0; w &= w - 1) {
+                    a.valores[a.cantidad++] = (char) (k << 6 | Long.numberOfTrailingZeros(w));
+                }
+            }
+            return a;
+        }
+    }
+}
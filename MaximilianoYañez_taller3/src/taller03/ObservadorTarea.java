@@ -0,0 +1,20 @@
+package taller03;
+
+/**
+ * Interfaz para recibir notificaciones cuando cambia el estado de una {@link Tarea}.
+ * <p>
+ * El {@link Sistema} se registra como observador de cada tarea que administra, de
+ * modo que los cambios hechos mediante {@link Tarea#setEstado(String)} quedan
+ * reflejados en la persistencia sin importar desde dónde se realicen.
+ * </p>
+ */
+public interface ObservadorTarea {
+
+    /**
+     * Se invoca después de que una tarea cambia de estado.
+     *
+     * @param t        tarea modificada.
+     * @param anterior estado que tenía la tarea antes del cambio.
+     */
+    void estadoCambiado(Tarea t, String anterior);
+}
@@ -0,0 +1,362 @@
+package taller03;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Ordenamiento estable de tareas por un atributo, usado por las estrategias de
+ * priorización.
+ * <p>
+ * En lugar de comparar las tareas en cada paso del ordenamiento, se lee el
+ * atributo de cada fila una sola vez, se ordenan los valores distintos con el
+ * comparador de la estrategia (son pocos: tipos, complejidades o días) y cada
+ * tarea recibe como clave la posición de su valor. Luego se ordena un arreglo de
+ * <code>long</code> con la clave en los 32 bits altos y la posición original en
+ * los bajos, lo que mantiene el orden de las tareas con igual clave.
+ * </p>
+ *
+ * Si la lista es un {@link TareaStore} solo se reescribe su orden, sin crear las
+ * vistas de las tareas. Con listas grandes (ver {@link #setUmbralParalelo}) la
+ * lectura de los atributos se divide en tramos y el ordenamiento usa
+ * {@link Arrays#parallelSort}, ambos en el pool común; como la posición original
+ * es parte de la clave, el resultado es el mismo que en un solo hilo. Para
+ * obtener solo las primeras tareas, {@link #primeras} cuenta cuántas tareas
+ * tiene cada posición de valor y ordena únicamente las elegidas, sin modificar
+ * la lista.
+ */
+final class OrdenPorClave {
+
+    /** Atributo por el que se ordena. */
+    enum Campo {
+        TIPO, COMPLEJIDAD, FECHA;
+
+        String de(FilasTareas filas, int f) {
+            switch (this) {
+                case TIPO: return filas.tipo(f);
+                case COMPLEJIDAD: return filas.complejidad(f);
+                default: return filas.fecha(f);
+            }
+        }
+    }
+
+    /**
+     * Cantidad de tareas desde la que se ordena en paralelo. Propiedad
+     * <code>taller03.umbralOrdenParalelo</code>.
+     */
+    private static volatile int umbralParalelo = Integer.getInteger("taller03.umbralOrdenParalelo", 200_000);
+
+    /** Tareas mínimas por tramo al leer en paralelo. */
+    private static final int TRAMO_MINIMO = 16_384;
+
+    private OrdenPorClave() {
+    }
+
+    /**
+     * Cambia la cantidad de tareas desde la que se ordena en paralelo.
+     *
+     * @param tareas umbral; {@link Integer#MAX_VALUE} para no ordenar nunca en paralelo.
+     */
+    static void setUmbralParalelo(int tareas) {
+        umbralParalelo = tareas;
+    }
+
+    private static boolean esParalelo(int n) {
+        return n >= umbralParalelo && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * Ordena las tareas según el atributo indicado.
+     *
+     * @param tareas lista a ordenar.
+     * @param campo  atributo por el que se ordena.
+     * @param orden  orden de los valores del atributo; los valores iguales según
+     *               el comparador conservan el orden de sus tareas.
+     */
+    static void ordenar(List<Tarea> tareas, Campo campo, Comparator<String> orden) {
+        int n = tareas.size();
+        if (n < 2) return;
+        int[] rangos = rangosPorTarea(tareas, campo, orden);
+
+        // Clave y posición original, ordenadas como números.
+        long[] claves = new long[n];
+        for (int i = 0; i < n; i++) claves[i] = (long) rangos[i] << 32 | i;
+        ordenarPorClaves(tareas, claves);
+    }
+
+    /**
+     * Ordena las tareas según claves ya calculadas.
+     *
+     * @param tareas lista a ordenar.
+     * @param claves clave de cada tarea en los 32 bits altos y su posición en los
+     *               bajos; se ordena en el lugar.
+     */
+    static void ordenarPorClaves(List<Tarea> tareas, long[] claves) {
+        int n = claves.length;
+        if (esParalelo(n)) Arrays.parallelSort(claves);
+        else Arrays.sort(claves);
+
+        int[] permutacion = new int[n];
+        for (int i = 0; i < n; i++) permutacion[i] = (int) claves[i];
+        if (tareas instanceof TareaStore store) {
+            store.reordenar(permutacion);
+        } else {
+            Tarea[] anteriores = tareas.toArray(new Tarea[0]);
+            ListIterator<Tarea> it = tareas.listIterator();
+            for (int p : permutacion) {
+                it.next();
+                it.set(anteriores[p]);
+            }
+        }
+    }
+
+    /**
+     * Retorna las tareas de las menores claves, en orden, sin modificar la lista.
+     * Mantiene un montículo con las elegidas, por lo que cuesta O(n log k).
+     *
+     * @param tareas   lista de tareas.
+     * @param claves   clave de cada tarea, como en {@link #ordenarPorClaves}.
+     * @param cantidad cantidad máxima de tareas.
+     * @return lista nueva con las primeras tareas.
+     */
+    static List<Tarea> primerasPorClaves(List<Tarea> tareas, long[] claves, int cantidad) {
+        int k = Math.min(Math.max(cantidad, 0), claves.length);
+        // Montículo de máximos: la raíz es la mayor de las k claves elegidas.
+        long[] elegidas = new long[k];
+        int m = 0;
+        for (long c : claves) {
+            if (m < k) {
+                int i = m++;
+                while (i > 0 && elegidas[(i - 1) / 2] < c) {
+                    elegidas[i] = elegidas[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                elegidas[i] = c;
+            } else if (k > 0 && c < elegidas[0]) {
+                int i = 0;
+                while (2 * i + 1 < k) {
+                    int hijo = 2 * i + 1;
+                    if (hijo + 1 < k && elegidas[hijo + 1] > elegidas[hijo]) hijo++;
+                    if (elegidas[hijo] <= c) break;
+                    elegidas[i] = elegidas[hijo];
+                    i = hijo;
+                }
+                elegidas[i] = c;
+            }
+        }
+        Arrays.sort(elegidas);
+        List<Tarea> resultado = new ArrayList<>(k);
+        for (long c : elegidas) resultado.add(tareas.get((int) c));
+        return resultado;
+    }
+
+    /**
+     * Retorna las primeras tareas según el atributo indicado, en el mismo orden que
+     * dejaría {@link #ordenar}, sin modificar la lista. Cuesta O(n) más el orden de
+     * los valores distintos y de las tareas elegidas; si la lista es un
+     * {@link TareaStore}, las tareas se leen de su {@link VistaPrioridad}, que se
+     * mantiene con el almacén.
+     *
+     * @param tareas   lista de tareas.
+     * @param campo    atributo por el que se ordena.
+     * @param orden    orden de los valores del atributo.
+     * @param cantidad cantidad máxima de tareas.
+     * @return lista nueva con las primeras tareas.
+     */
+    static List<Tarea> primeras(List<Tarea> tareas, Campo campo, Comparator<String> orden, int cantidad) {
+        if (tareas instanceof TareaStore store) return store.priorizadas(campo, orden, cantidad);
+        int n = tareas.size();
+        int k = Math.min(Math.max(cantidad, 0), n);
+        if (k == 0) return new ArrayList<>();
+        int[] rangos = rangosPorTarea(tareas, campo, orden);
+
+        // Se cuentan las tareas por posición de valor para hallar la última
+        // posición que entra y cuántas tareas de esa posición caben.
+        int maximo = 0;
+        for (int r : rangos) maximo = Math.max(maximo, r);
+        int[] cantidades = new int[maximo + 1];
+        for (int r : rangos) cantidades[r]++;
+        int corte = 0;
+        int antes = 0;
+        while (antes + cantidades[corte] < k) antes += cantidades[corte++];
+        int delCorte = k - antes;
+
+        long[] claves = new long[k];
+        int m = 0;
+        for (int i = 0; i < n && m < k; i++) {
+            if (rangos[i] < corte || rangos[i] == corte && delCorte-- > 0) claves[m++] = (long) rangos[i] << 32 | i;
+        }
+        Arrays.sort(claves);
+        List<Tarea> resultado = new ArrayList<>(k);
+        for (long c : claves) resultado.add(tareas.get((int) c));
+        return resultado;
+    }
+
+    /** @return posición del valor del atributo de cada tarea en el orden indicado. */
+    private static int[] rangosPorTarea(List<Tarea> tareas, Campo campo, Comparator<String> orden) {
+        int n = tareas.size();
+        boolean paralelo = esParalelo(n);
+
+        // Primera pasada, por tramos: un identificador por tarea. Las fechas
+        // yyyy-MM-dd se identifican por su número de día (no negativo al
+        // desplazarlo) y el resto de los valores, que vienen de diccionarios, por un
+        // código de su texto propio de cada tramo.
+        long[] ids = new long[n];
+        int cantidadTramos = paralelo ? Math.min(n / TRAMO_MINIMO + 1, ForkJoinPool.getCommonPoolParallelism() * 4) : 1;
+        Tramo[] tramos = new Tramo[cantidadTramos];
+        porTramo(cantidadTramos, paralelo, t -> tramos[t] = leer(tareas, campo, ids,
+                (int) ((long) n * t / cantidadTramos), (int) ((long) n * (t + 1) / cantidadTramos)));
+
+        // Códigos comunes de los textos de todos los tramos.
+        Map<String, Integer> textos = new HashMap<>();
+        int minimo = Integer.MAX_VALUE, maximo = Integer.MIN_VALUE, cantidadDias = 0;
+        for (Tramo tramo : tramos) {
+            tramo.codigos = new int[tramo.textos.size()];
+            for (Map.Entry<String, Integer> e : tramo.textos.entrySet()) {
+                Integer codigo = textos.get(e.getKey());
+                if (codigo == null) textos.put(e.getKey(), codigo = textos.size());
+                tramo.codigos[e.getValue()] = codigo;
+            }
+            minimo = Math.min(minimo, tramo.minimo);
+            maximo = Math.max(maximo, tramo.maximo);
+            cantidadDias += tramo.cantidadDias;
+        }
+
+        // Días distintos, en orden. Si abarcan un rango acotado, la posición de cada
+        // día se guarda en una tabla por día en lugar de buscarla.
+        int[] dias = new int[cantidadDias];
+        int k = 0;
+        for (long id : ids) {
+            if (id >= 0) dias[k++] = (int) (id + Integer.MIN_VALUE);
+        }
+        int[] tabla = null;
+        if (cantidadDias > 0 && (long) maximo - minimo < 4L * n + 1024) {
+            tabla = new int[maximo - minimo + 1];
+            for (int d : dias) tabla[d - minimo] = 1;
+            k = 0;
+            for (int d = 0; d < tabla.length; d++) {
+                if (tabla[d] != 0) {
+                    tabla[d] = k;
+                    dias[k++] = minimo + d;
+                }
+            }
+            dias = Arrays.copyOf(dias, k);
+        } else {
+            dias = distintos(dias, paralelo);
+        }
+
+        // Valores distintos: primero los días y luego los textos.
+        String[] valores = new String[dias.length + textos.size()];
+        for (int d = 0; d < dias.length; d++) valores[d] = FilasTareas.fechaDeDia(dias[d]);
+        for (Map.Entry<String, Integer> e : textos.entrySet()) valores[dias.length + e.getValue()] = e.getKey();
+        int[] rangos = rangos(valores, orden);
+
+        // Segunda pasada, por tramos: posición del valor de cada tarea.
+        int[] resultado = new int[n];
+        int[] diasDistintos = dias;
+        int[] posicionDia = tabla;
+        int base = minimo;
+        porTramo(cantidadTramos, paralelo, t -> {
+            Tramo tramo = tramos[t];
+            for (int i = tramo.desde; i < tramo.hasta; i++) {
+                int v;
+                if (ids[i] < 0) {
+                    v = diasDistintos.length + tramo.codigos[(int) (-1 - ids[i])];
+                } else {
+                    int dia = (int) (ids[i] + Integer.MIN_VALUE);
+                    v = posicionDia != null ? posicionDia[dia - base] : Arrays.binarySearch(diasDistintos, dia);
+                }
+                resultado[i] = rangos[v];
+            }
+        });
+        return resultado;
+    }
+
+    /** Lee el atributo de las tareas de un tramo y anota su identificador. */
+    private static Tramo leer(List<Tarea> tareas, Campo campo, long[] ids, int desde, int hasta) {
+        Tramo tramo = new Tramo(desde, hasta);
+        TareaStore store = tareas instanceof TareaStore s ? s : null;
+        for (int i = desde; i < hasta; i++) {
+            FilasTareas filas;
+            int f;
+            if (store != null) {
+                filas = store.filas();
+                f = filas.fila(i);
+            } else {
+                Tarea t = tareas.get(i);
+                filas = t.getFilas();
+                f = t.getFila();
+            }
+            long dia = campo == Campo.FECHA ? filas.dia(f) : Long.MIN_VALUE;
+            if (dia != Long.MIN_VALUE) {
+                ids[i] = dia - Integer.MIN_VALUE;
+                tramo.minimo = Math.min(tramo.minimo, (int) dia);
+                tramo.maximo = Math.max(tramo.maximo, (int) dia);
+                tramo.cantidadDias++;
+            } else {
+                String valor = campo.de(filas, f);
+                Integer codigo = tramo.textos.get(valor);
+                if (codigo == null) tramo.textos.put(valor, codigo = tramo.textos.size());
+                ids[i] = -1 - codigo;
+            }
+        }
+        return tramo;
+    }
+
+    /** Ejecuta la acción para cada tramo, en el pool común si se pide en paralelo. */
+    private static void porTramo(int cantidad, boolean paralelo, IntConsumer accion) {
+        IntStream tramos = IntStream.range(0, cantidad);
+        (paralelo ? tramos.parallel() : tramos).forEach(accion);
+    }
+
+    /** Tareas de un tramo de la lista y los valores encontrados en él. */
+    private static final class Tramo {
+        final int desde;
+        final int hasta;
+        final Map<String, Integer> textos = new HashMap<>();
+        int[] codigos;
+        int minimo = Integer.MAX_VALUE;
+        int maximo = Integer.MIN_VALUE;
+        int cantidadDias;
+
+        Tramo(int desde, int hasta) {
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+    }
+
+    /** @return los valores ordenados y sin repetir; ordena el arreglo recibido. */
+    private static int[] distintos(int[] r, boolean paralelo) {
+        if (paralelo) Arrays.parallelSort(r);
+        else Arrays.sort(r);
+        int k = 0;
+        for (int i = 0; i < r.length; i++) {
+            if (k == 0 || r[i] != r[k - 1]) r[k++] = r[i];
+        }
+        return Arrays.copyOf(r, k);
+    }
+
+    /**
+     * @return posición de cada valor en el orden indicado; los valores iguales
+     *         según el comparador reciben la misma posición.
+     */
+    private static int[] rangos(String[] valores, Comparator<String> orden) {
+        Integer[] indices = new Integer[valores.length];
+        for (int i = 0; i < indices.length; i++) indices[i] = i;
+        Arrays.sort(indices, (a, b) -> orden.compare(valores[a], valores[b]));
+        int[] rangos = new int[valores.length];
+        int rango = 0;
+        for (int i = 0; i < indices.length; i++) {
+            if (i > 0 && orden.compare(valores[indices[i - 1]], valores[indices[i]]) != 0) rango++;
+            rangos[indices[i]] = rango;
+        }
+        return rangos;
+    }
+}
@@ -0,0 +1,195 @@
+package taller03;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistencia diferida (<i>write-behind</i>) en un hilo dedicado.
+ * <p>
+ * Las operaciones de escritura se encolan sin bloquear a quien las solicita. El
+ * hilo de persistencia las toma en lotes y las ejecuta cuando el lote alcanza un
+ * tamaño máximo, cuando la operación más antigua lleva esperando un intervalo de
+ * tiempo o cuando se pide explícitamente con {@link #solicitarEscritura()}. Después
+ * de cada lote ejecuta una acción de confirmación (por ejemplo, un fsync de la
+ * bitácora).
+ * </p>
+ *
+ * Expone la cantidad de operaciones pendientes y la latencia de escritura de los
+ * lotes para poder monitorear el mecanismo.
+ */
+public final class PersistenciaDiferida {
+
+    /**
+     * Operación de escritura ejecutada en el hilo de persistencia.
+     */
+    public interface Operacion {
+
+        /**
+         * @throws IOException si la escritura falla.
+         */
+        void aplicar() throws IOException;
+    }
+
+    /** Marca que pide escribir el lote actual sin esperar a que se complete. */
+    private static final Operacion ESCRIBIR_AHORA = () -> { };
+
+    private final LinkedBlockingQueue<Operacion> cola = new LinkedBlockingQueue<>();
+    private final AtomicInteger pendientes = new AtomicInteger();
+    private final int tamanoLote;
+    private final long intervaloMs;
+    private final ConfirmacionGrupal.Accion confirmacion;
+    private final Thread hilo;
+    private volatile boolean deteniendo = false;
+
+    private long lotesEscritos;
+    private long operacionesEscritas;
+    private long errores;
+    private long ultimaLatenciaNanos;
+    private long maximaLatenciaNanos;
+    private long totalLatenciaNanos;
+
+    /**
+     * Crea la persistencia diferida e inicia su hilo.
+     *
+     * @param tamanoLote   cantidad de operaciones que provoca la escritura inmediata del lote.
+     * @param intervaloMs  tiempo máximo que una operación espera en un lote antes de escribirse.
+     * @param confirmacion acción ejecutada después de cada lote.
+     */
+    public PersistenciaDiferida(int tamanoLote, long intervaloMs, ConfirmacionGrupal.Accion confirmacion) {
+        this.tamanoLote = Math.max(1, tamanoLote);
+        this.intervaloMs = Math.max(1, intervaloMs);
+        this.confirmacion = confirmacion;
+        this.hilo = new Thread(this::ejecutar, "persistencia-diferida");
+        this.hilo.setDaemon(true);
+        this.hilo.start();
+    }
+
+    /**
+     * Encola una operación de escritura. Nunca bloquea.
+     *
+     * @param op operación a ejecutar en el hilo de persistencia.
+     */
+    public void encolar(Operacion op) {
+        pendientes.incrementAndGet();
+        cola.add(op);
+    }
+
+    /** Pide escribir lo pendiente sin esperar a completar el lote. No bloquea. */
+    public void solicitarEscritura() {
+        cola.add(ESCRIBIR_AHORA);
+    }
+
+    /**
+     * Detiene el hilo después de escribir lo pendiente, esperando como máximo el
+     * tiempo indicado.
+     *
+     * @param esperaMs tiempo máximo de espera en milisegundos.
+     * @return true si se alcanzó a escribir todo lo pendiente.
+     */
+    public boolean detener(long esperaMs) {
+        deteniendo = true;
+        cola.add(ESCRIBIR_AHORA);
+        try {
+            hilo.join(Math.max(1, esperaMs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !hilo.isAlive();
+    }
+
+    /** @return cantidad de operaciones encoladas que aún no se escriben, incluido el lote en curso. */
+    public int pendientes() {
+        return pendientes.get();
+    }
+
+    /** @return cantidad de lotes escritos. */
+    public synchronized long getLotesEscritos() { return lotesEscritos; }
+
+    /** @return cantidad de operaciones escritas. */
+    public synchronized long getOperacionesEscritas() { return operacionesEscritas; }
+
+    /** @return cantidad de operaciones o confirmaciones que fallaron. */
+    public synchronized long getErrores() { return errores; }
+
+    /** @return duración en milisegundos de la escritura del último lote. */
+    public synchronized double getUltimaLatenciaMs() { return ultimaLatenciaNanos / 1e6; }
+
+    /** @return duración máxima en milisegundos de la escritura de un lote. */
+    public synchronized double getMaximaLatenciaMs() { return maximaLatenciaNanos / 1e6; }
+
+    /** @return duración promedio en milisegundos de la escritura de un lote. */
+    public synchronized double getPromedioLatenciaMs() {
+        return lotesEscritos == 0 ? 0 : totalLatenciaNanos / 1e6 / lotesEscritos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Pendientes: %d | Lotes: %d | Operaciones: %d | Errores: %d"
+                        + " | Latencia última/promedio/máxima: %.2f/%.2f/%.2f ms",
+                pendientes(), getLotesEscritos(), getOperacionesEscritas(), getErrores(),
+                getUltimaLatenciaMs(), getPromedioLatenciaMs(), getMaximaLatenciaMs());
+    }
+
+    /** Ciclo del hilo de persistencia. */
+    private void ejecutar() {
+        List<Operacion> lote = new ArrayList<>();
+        long limite = 0;
+        boolean forzar = false;
+        while (true) {
+            long espera = lote.isEmpty() ? intervaloMs : limite - System.currentTimeMillis();
+            try {
+                Operacion op = espera > 0 ? cola.poll(espera, TimeUnit.MILLISECONDS) : cola.poll();
+                if (op != null) {
+                    if (lote.isEmpty()) limite = System.currentTimeMillis() + intervaloMs;
+                    lote.add(op);
+                    cola.drainTo(lote, tamanoLote - lote.size());
+                }
+            } catch (InterruptedException e) {
+                deteniendo = true;
+            }
+
+            while (lote.remove(ESCRIBIR_AHORA)) forzar = true;
+            boolean vencido = System.currentTimeMillis() >= limite;
+            if (forzar || deteniendo || lote.size() >= tamanoLote || (vencido && !lote.isEmpty())) {
+                escribir(lote);
+                forzar = false;
+            }
+            if (deteniendo && lote.isEmpty() && cola.isEmpty()) return;
+        }
+    }
+
+    /** Ejecuta las operaciones del lote y la confirmación, registrando su latencia. */
+    private void escribir(List<Operacion> lote) {
+        long inicio = System.nanoTime();
+        long fallas = 0;
+        for (Operacion op : lote) {
+            try {
+                op.aplicar();
+            } catch (IOException e) {
+                fallas++;
+                System.out.println("Error al guardar un cambio: " + e.getMessage());
+            }
+        }
+        try {
+            confirmacion.ejecutar();
+        } catch (IOException e) {
+            fallas++;
+            System.out.println("Error al confirmar los cambios: " + e.getMessage());
+        }
+        long latencia = System.nanoTime() - inicio;
+        synchronized (this) {
+            lotesEscritos++;
+            operacionesEscritas += lote.size();
+            errores += fallas;
+            ultimaLatenciaNanos = latencia;
+            maximaLatenciaNanos = Math.max(maximaLatenciaNanos, latencia);
+            totalLatenciaNanos += latencia;
+        }
+        pendientes.addAndGet(-lote.size());
+        lote.clear();
+    }
+}
@@ -1,6 +1,5 @@
 package taller03;
 
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
@@ -14,18 +13,25 @@ import java.util.List;
  *     <li><b>Media</b></li>
  *     <li><b>Baja</b> → prioridad mínima</li>
  * </ul>
- * Cualquier valor no reconocido recibe prioridad 0.
+ * Cualquier valor no reconocido recibe prioridad 0. El nivel se calcula una
+ * sola vez por cada valor distinto.
  * </p>
  */
 public class PorComplejidadStrategy implements PrioritizacionStrategy {
 
+    /**
+     * Complejidades de mayor a menor nivel; al ser único, el almacén mantiene una
+     * sola vista para la estrategia.
+     */
+    private static final Comparator<String> ORDEN = (c1, c2) -> Integer.compare(valorComplejidad(c2), valorComplejidad(c1));
+
     /**
      * Convierte el texto de complejidad en un valor numérico para comparación.
      *
      * @param c cadena que representa la complejidad (Alta, Media, Baja).
      * @return entero correspondiente al nivel de complejidad.
      */
-    private int valorComplejidad(String c) {
+    static int valorComplejidad(String c) {
         if (c == null) return 0;
         String s = c.trim().toLowerCase();
         switch (s) {
@@ -43,14 +49,18 @@ public class PorComplejidadStrategy implements PrioritizacionStrategy {
      */
     @Override
     public void priorizar(List<Tarea> tareas) {
-        Collections.sort(tareas, new Comparator<Tarea>() {
-            @Override
-            public int compare(Tarea t1, Tarea t2) {
-                return Integer.compare(
-                        valorComplejidad(t2.getComplejidad()),
-                        valorComplejidad(t1.getComplejidad())
-                );
-            }
-        });
+        OrdenPorClave.ordenar(tareas, OrdenPorClave.Campo.COMPLEJIDAD, ORDEN);
+    }
+
+    /**
+     * Retorna las <code>k</code> tareas de mayor complejidad sin ordenar ni modificar la lista.
+     *
+     * @param tareas lista de {@link Tarea}; no se modifica.
+     * @param k      cantidad máxima de tareas.
+     * @return lista nueva con las tareas elegidas, en orden de prioridad.
+     */
+    @Override
+    public List<Tarea> topK(List<Tarea> tareas, int k) {
+        return OrdenPorClave.primeras(tareas, OrdenPorClave.Campo.COMPLEJIDAD, ORDEN, k);
     }
 }
@@ -0,0 +1,217 @@
+package taller03;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estrategia de priorización que combina varios criterios, por ejemplo mayor
+ * impacto, luego mayor complejidad y luego la fecha más antigua.
+ * <p>
+ * Implementa el patrón <b>Strategy</b> y se arma con el patrón <b>Builder</b>:
+ * </p>
+ *
+ * <pre>
+ * PrioritizacionStrategy urgencia = new PorCriteriosStrategy.Builder()
+ *         .porImpacto().porComplejidad().porFecha().build();
+ * </pre>
+ *
+ * Cada criterio ocupa un grupo de bits de un puntaje <code>long</code> por tarea
+ * (ver {@link #puntaje}), en el orden en que se agregó, por lo que comparar dos
+ * puntajes equivale a comparar los criterios uno tras otro y toda la
+ * priorización es un solo ordenamiento de números. Las tareas con el mismo
+ * puntaje conservan su orden. Las fechas que no están en formato yyyy-MM-dd
+ * quedan después de todas las demás.
+ */
+public final class PorCriteriosStrategy implements PrioritizacionStrategy {
+
+    /** Criterio de priorización y bits que ocupa en el puntaje. */
+    public enum Criterio {
+        /** Bug, luego Feature y luego Documentación (2 bits). */
+        IMPACTO(2),
+        /** Complejidad Alta, luego Media y luego Baja (2 bits). */
+        COMPLEJIDAD(2),
+        /** Fecha más antigua primero (23 bits). */
+        FECHA(23);
+
+        private final int bits;
+
+        Criterio(int bits) {
+            this.bits = bits;
+        }
+    }
+
+    /** Primer día con año de cuatro cifras (0000-01-01); los 2^22 días siguientes pasan de 9999-12-31. */
+    private static final long PRIMER_DIA = LocalDate.of(0, 1, 1).toEpochDay();
+    private static final long DIAS = 1L << 22;
+
+    private final Criterio[] criterios;
+
+    /** Posición del grupo de bits de cada criterio, o -1 si no se usa. */
+    private final int[] desplazamientos = new int[Criterio.values().length];
+
+    /** Puntaje máximo posible. */
+    private final long maximo;
+
+    private PorCriteriosStrategy(List<Criterio> criterios) {
+        this.criterios = criterios.toArray(new Criterio[0]);
+        Arrays.fill(desplazamientos, -1);
+        int bits = 0;
+        for (int i = criterios.size() - 1; i >= 0; i--) {
+            desplazamientos[criterios.get(i).ordinal()] = bits;
+            bits += criterios.get(i).bits;
+        }
+        maximo = (1L << bits) - 1;
+    }
+
+    /**
+     * Calcula el puntaje de una tarea: mayor mientras más prioritaria. Los
+     * criterios van de los bits altos a los bajos en el orden en que se agregaron.
+     *
+     * @param t tarea.
+     * @return puntaje de la tarea.
+     */
+    public long puntaje(Tarea t) {
+        return puntaje(t.getFilas(), t.getFila(), null, null);
+    }
+
+    /**
+     * Extrae el nivel de un criterio de un puntaje: 0 a 3 para el impacto y la
+     * complejidad (0 si el valor no se reconoce) y, para la fecha, un valor mayor
+     * mientras más antigua sea (0 si no tiene formato yyyy-MM-dd).
+     *
+     * @param puntaje  puntaje calculado por {@link #puntaje}.
+     * @param criterio criterio de la estrategia.
+     * @return nivel del criterio.
+     * @throws IllegalArgumentException si la estrategia no usa el criterio.
+     */
+    public int nivel(long puntaje, Criterio criterio) {
+        int desplazamiento = desplazamientos[criterio.ordinal()];
+        if (desplazamiento < 0) throw new IllegalArgumentException("La estrategia no usa el criterio " + criterio);
+        return (int) (puntaje >>> desplazamiento & (1L << criterio.bits) - 1);
+    }
+
+    /** @return criterios de la estrategia, en orden. */
+    public List<Criterio> getCriterios() {
+        return List.of(criterios);
+    }
+
+    /**
+     * Ordena las tareas por su puntaje, de mayor a menor, con un solo
+     * ordenamiento de claves numéricas.
+     *
+     * @param tareas lista de {@link Tarea} a ordenar.
+     */
+    @Override
+    public void priorizar(List<Tarea> tareas) {
+        if (tareas.size() < 2) return;
+        OrdenPorClave.ordenarPorClaves(tareas, claves(tareas));
+    }
+
+    /**
+     * Retorna las <code>k</code> tareas de mayor puntaje sin ordenar ni modificar la lista.
+     *
+     * @param tareas lista de {@link Tarea}; no se modifica.
+     * @param k      cantidad máxima de tareas.
+     * @return lista nueva con las tareas elegidas, en orden de prioridad.
+     */
+    @Override
+    public List<Tarea> topK(List<Tarea> tareas, int k) {
+        if (k <= 0 || tareas.isEmpty()) return new ArrayList<>();
+        return OrdenPorClave.primerasPorClaves(tareas, claves(tareas), k);
+    }
+
+    /**
+     * @return clave de cada tarea: el puntaje invertido, para que las prioritarias
+     *         queden primero, y la posición en los 32 bits bajos.
+     */
+    private long[] claves(List<Tarea> tareas) {
+        TareaStore store = tareas instanceof TareaStore s ? s : null;
+        // Los niveles se calculan una vez por cada tipo y complejidad distintos.
+        Map<String, Integer> impactos = new HashMap<>();
+        Map<String, Integer> complejidades = new HashMap<>();
+        long[] claves = new long[tareas.size()];
+        for (int i = 0; i < claves.length; i++) {
+            long p;
+            if (store != null) {
+                p = puntaje(store.filas(), store.filaEn(i), impactos, complejidades);
+            } else {
+                Tarea t = tareas.get(i);
+                p = puntaje(t.getFilas(), t.getFila(), impactos, complejidades);
+            }
+            claves[i] = (maximo - p) << 32 | i;
+        }
+        return claves;
+    }
+
+    /** Calcula el puntaje de una fila, con los niveles ya calculados por valor si se indican. */
+    private long puntaje(FilasTareas filas, int f, Map<String, Integer> impactos, Map<String, Integer> complejidades) {
+        long p = 0;
+        for (Criterio c : criterios) {
+            long nivel;
+            switch (c) {
+                case IMPACTO:
+                    nivel = impactos == null ? PorImpactoStrategy.impacto(filas.tipo(f))
+                            : impactos.computeIfAbsent(filas.tipo(f), PorImpactoStrategy::impacto);
+                    break;
+                case COMPLEJIDAD:
+                    nivel = complejidades == null ? PorComplejidadStrategy.valorComplejidad(filas.complejidad(f))
+                            : complejidades.computeIfAbsent(filas.complejidad(f), PorComplejidadStrategy::valorComplejidad);
+                    break;
+                default:
+                    // Las fechas válidas usan el bit alto del grupo; las demás quedan en 0.
+                    long dia = filas.dia(f);
+                    boolean valida = dia != Long.MIN_VALUE && dia >= PRIMER_DIA && dia - PRIMER_DIA < DIAS;
+                    nivel = valida ? 2 * DIAS - 1 - (dia - PRIMER_DIA) : 0;
+                    break;
+            }
+            p = p << c.bits | nivel;
+        }
+        return p;
+    }
+
+    /**
+     * Construye una {@link PorCriteriosStrategy} agregando los criterios en orden
+     * de importancia.
+     */
+    public static final class Builder {
+
+        private final List<Criterio> criterios = new ArrayList<>();
+
+        /** Agrega el impacto del tipo de tarea, de mayor a menor. */
+        public Builder porImpacto() {
+            return por(Criterio.IMPACTO);
+        }
+
+        /** Agrega la complejidad, de mayor a menor. */
+        public Builder porComplejidad() {
+            return por(Criterio.COMPLEJIDAD);
+        }
+
+        /** Agrega la fecha, de la más antigua a la más reciente. */
+        public Builder porFecha() {
+            return por(Criterio.FECHA);
+        }
+
+        /**
+         * Agrega un criterio.
+         *
+         * @param criterio criterio siguiente en importancia.
+         * @return este builder.
+         * @throws IllegalArgumentException si el criterio ya se agregó.
+         */
+        public Builder por(Criterio criterio) {
+            if (criterios.contains(criterio)) throw new IllegalArgumentException("El criterio " + criterio + " ya se agregó");
+            criterios.add(criterio);
+            return this;
+        }
+
+        /** @return estrategia con los criterios agregados. */
+        public PorCriteriosStrategy build() {
+            return new PorCriteriosStrategy(criterios);
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package taller03;
 
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
@@ -10,6 +9,7 @@ import java.util.List;
  * Implementa el patrón <b>Strategy</b>, ordenando las tareas desde la más
  * antigua a la más reciente. Se asume que la fecha está en formato
  * <b>yyyy-MM-dd</b>, lo cual permite una comparación lexicográfica correcta.
+ * Cada fecha distinta se compara una sola vez.
  * </p>
  */
 public class PorFechaStrategy implements PrioritizacionStrategy {
@@ -21,12 +21,19 @@ public class PorFechaStrategy implements PrioritizacionStrategy {
      */
     @Override
     public void priorizar(List<Tarea> tareas) {
+        // más antigua → primero
+        OrdenPorClave.ordenar(tareas, OrdenPorClave.Campo.FECHA, Comparator.naturalOrder());
+    }
 
-        Collections.sort(tareas, new Comparator<Tarea>() {
-            @Override
-            public int compare(Tarea t1, Tarea t2) {
-                return t1.getFecha().compareTo(t2.getFecha()); // más antigua → primero
-            }
-        });
+    /**
+     * Retorna las <code>k</code> tareas más antiguas sin ordenar ni modificar la lista.
+     *
+     * @param tareas lista de {@link Tarea}; no se modifica.
+     * @param k      cantidad máxima de tareas.
+     * @return lista nueva con las tareas elegidas, en orden de prioridad.
+     */
+    @Override
+    public List<Tarea> topK(List<Tarea> tareas, int k) {
+        return OrdenPorClave.primeras(tareas, OrdenPorClave.Campo.FECHA, Comparator.naturalOrder(), k);
     }
 }
\ No newline at end of file
@@ -1,6 +1,5 @@
 package taller03;
 
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
@@ -17,17 +16,24 @@ import java.util.List;
  *     <li><b>Documentación</b> → Baja prioridad</li>
  * </ul>
  *
- * Las tareas con mayor impacto aparecerán primero.
+ * Las tareas con mayor impacto aparecerán primero. El impacto se calcula una
+ * sola vez por cada tipo distinto.
  */
 public class PorImpactoStrategy implements PrioritizacionStrategy {
 
+    /**
+     * Tipos de mayor a menor impacto. Es compartido para que todas las instancias
+     * usen la misma vista de prioridad del almacén.
+     */
+    private static final Comparator<String> ORDEN = (t1, t2) -> Integer.compare(impacto(t2), impacto(t1));
+
     /**
      * Asigna un valor numérico al impacto según el tipo de tarea.
      *
      * @param tipo tipo textual de la tarea (Bug, Feature, Documentación).
      * @return entero representando prioridad: 3 = alta, 2 = media, 1 = baja.
      */
-    private int impacto(String tipo) {
+    static int impacto(String tipo) {
         if (tipo == null) return 0;
         String t = tipo.trim().toLowerCase();
         switch (t) {
@@ -51,12 +57,18 @@ public class PorImpactoStrategy implements PrioritizacionStrategy {
      */
     @Override
     public void priorizar(List<Tarea> tareas) {
-        Collections.sort(tareas, new Comparator<Tarea>() {
-            @Override
-            public int compare(Tarea t1, Tarea t2) {
-                // Orden descendente: mayor impacto primero
-                return Integer.compare(impacto(t2.getTipo()), impacto(t1.getTipo()));
-            }
-        });
+        OrdenPorClave.ordenar(tareas, OrdenPorClave.Campo.TIPO, ORDEN);
+    }
+
+    /**
+     * Retorna las <code>k</code> tareas de mayor impacto sin ordenar ni modificar la lista.
+     *
+     * @param tareas lista de {@link Tarea}; no se modifica.
+     * @param k      cantidad máxima de tareas.
+     * @return lista nueva con las tareas elegidas, en orden de prioridad.
+     */
+    @Override
+    public List<Tarea> topK(List<Tarea> tareas, int k) {
+        return OrdenPorClave.primeras(tareas, OrdenPorClave.Campo.TIPO, ORDEN, k);
     }
 }
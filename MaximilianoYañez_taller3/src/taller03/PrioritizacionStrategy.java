@@ -1,5 +1,6 @@
 package taller03;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -26,4 +27,39 @@ public interface PrioritizacionStrategy {
      *               No debe ser nula, pero puede estar vacía.
      */
     void priorizar(List<Tarea> tareas);
+
+    /**
+     * Retorna las primeras tareas según la estrategia, en el orden en que
+     * quedarían al priorizar, sin modificar la lista recibida.
+     * <p>
+     * La implementación por defecto prioriza una copia de la lista; las
+     * estrategias del sistema la reemplazan por una selección que no ordena la
+     * lista completa.
+     * </p>
+     *
+     * @param tareas lista de objetos {@link Tarea}; no se modifica.
+     * @param k      cantidad máxima de tareas a retornar.
+     * @return lista nueva con a lo más <code>k</code> tareas.
+     */
+    default List<Tarea> topK(List<Tarea> tareas, int k) {
+        List<Tarea> copia = new ArrayList<>(tareas);
+        priorizar(copia);
+        return new ArrayList<>(copia.subList(0, Math.min(Math.max(k, 0), copia.size())));
+    }
+
+    /**
+     * Retorna todas las tareas en el orden en que quedarían al priorizar, sin
+     * modificar la lista recibida.
+     * <p>
+     * Con un {@link TareaStore}, las estrategias del sistema leen el orden de una
+     * vista que el almacén mantiene al agregar y eliminar tareas, por lo que
+     * consultarlo de nuevo no vuelve a ordenar.
+     * </p>
+     *
+     * @param tareas lista de objetos {@link Tarea}; no se modifica.
+     * @return lista nueva con las tareas, en orden de prioridad.
+     */
+    default List<Tarea> priorizadas(List<Tarea> tareas) {
+        return topK(tareas, tareas.size());
+    }
 }
@@ -0,0 +1,488 @@
+package taller03;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Generador del reporte de proyectos y sus tareas (<code>reporte.txt</code>).
+ * <p>
+ * Las tareas se agrupan por proyecto en una sola pasada sobre las filas del
+ * almacén (un conteo por proyecto y luego la ubicación de cada fila), sin buscar
+ * las tareas de cada proyecto por separado ni crear sus vistas. El reporte se
+ * divide en bloques de proyectos consecutivos con hasta {@value #LINEAS_POR_BLOQUE}
+ * tareas y proyectos; un proyecto más grande se reparte en varios bloques. Las
+ * filas de cada bloque se leen en el orden del almacén, que es el de su memoria,
+ * y sus líneas se copian luego en el orden del reporte. Todo pasa por un
+ * {@link EscritorUtf8}, por lo que el tiempo es lineal en la cantidad de tareas y
+ * proyectos y la memoria extra es un entero por tarea y por proyecto más los
+ * bloques en curso, sin importar cuántos proyectos haya.
+ * </p>
+ * <p>
+ * Con reportes grandes (ver {@link #setUmbralParalelo}) los bloques se generan en
+ * el pool común, de a uno por hilo y cada uno en su propio buffer, y cada tanda
+ * se escribe en orden con una sola escritura agrupada al canal. El archivo es el
+ * mismo que en un solo hilo. Cada proyecto conserva el orden de sus tareas en el
+ * almacén.
+ * </p>
+ *
+ * El reporte se escribe en un temporal que luego reemplaza al archivo, y se
+ * devuelve un {@link Indice} con la ubicación de la sección de cada proyecto.
+ * Con él, {@link #actualizar} genera solo las secciones de los proyectos
+ * modificados y copia las demás del reporte anterior.
+ */
+final class ReporteProyectos {
+
+    private static final String SALTO = System.lineSeparator();
+
+    /** Tareas y proyectos que se preparan juntos. */
+    private static final int LINEAS_POR_BLOQUE = 1 << 16;
+
+    /**
+     * Cantidad de tareas y proyectos desde la que el reporte se genera en
+     * paralelo. Propiedad <code>taller03.umbralReporteParalelo</code>.
+     */
+    private static volatile int umbralParalelo = Integer.getInteger("taller03.umbralReporteParalelo", 200_000);
+
+    private ReporteProyectos() {
+    }
+
+    /**
+     * Cambia la cantidad de tareas y proyectos desde la que el reporte se genera
+     * en paralelo.
+     *
+     * @param lineas umbral; {@link Integer#MAX_VALUE} para generarlo siempre en un hilo.
+     */
+    static void setUmbralParalelo(int lineas) {
+        umbralParalelo = lineas;
+    }
+
+    /**
+     * Escribe el reporte completo, reemplazando el archivo si existe.
+     *
+     * @param destino   archivo del reporte.
+     * @param proyectos proyectos, en el orden en que aparecen en el reporte.
+     * @param tareas    almacén con las tareas de los proyectos; no debe cambiar
+     *                  mientras se escribe.
+     * @param resumen   escribe la sección final del reporte.
+     * @return índice de las secciones del reporte escrito.
+     * @throws IOException si falla la escritura; el archivo anterior no cambia.
+     */
+    static Indice escribir(File destino, Collection<Proyecto> proyectos, TareaStore tareas,
+                           Consumer<PrintWriter> resumen) throws IOException {
+        Proyecto[] lista = proyectos.toArray(new Proyecto[0]);
+        Secciones secciones = Secciones.agrupar(lista, tareas.filas());
+        List<int[]> bloques = secciones.bloques(0, lista.length);
+        int hilos = Math.min(ForkJoinPool.getCommonPoolParallelism(), bloques.size());
+        boolean paralelo = secciones.agrupadas.length + lista.length >= umbralParalelo && hilos > 1;
+        long[] limites = new long[lista.length + 1];
+
+        reemplazar(destino, salida -> {
+            encabezado(salida);
+            limites[0] = salida.posicion();
+            if (paralelo) {
+                escribirEnParalelo(secciones, bloques, hilos, salida, limites);
+            } else {
+                Bloque bloque = new Bloque(secciones);
+                for (int[] b : bloques) bloque.escribir(b, salida, limites);
+            }
+            escribirResumen(salida, resumen);
+        });
+        return new Indice(destino, lista, limites);
+    }
+
+    /**
+     * Vuelve a escribir un reporte generando solo las secciones de los proyectos
+     * modificados o nuevos; las secciones de los demás se copian del reporte
+     * anterior. El encabezado y el resumen se generan siempre.
+     *
+     * @param anterior    índice del reporte anterior, que debe estar {@link Indice#vigente vigente}.
+     * @param proyectos   proyectos, en el orden en que aparecen en el reporte.
+     * @param tareas      almacén con las tareas de los proyectos; no debe cambiar
+     *                    mientras se escribe.
+     * @param resumen     escribe la sección final del reporte.
+     * @param modificados IDs de los proyectos que cambiaron, o cuyas tareas
+     *                    cambiaron, desde el reporte anterior.
+     * @return índice de las secciones del reporte escrito.
+     * @throws IOException si falla la escritura; el archivo anterior no cambia.
+     */
+    static Indice actualizar(Indice anterior, Collection<Proyecto> proyectos, TareaStore tareas,
+                             Consumer<PrintWriter> resumen, Set<String> modificados) throws IOException {
+        Proyecto[] lista = proyectos.toArray(new Proyecto[0]);
+
+        // Sección del reporte anterior que se copia para cada proyecto, o -1.
+        int[] copias = new int[lista.length];
+        List<Proyecto> generados = new ArrayList<>();
+        for (int j = 0; j < lista.length; j++) {
+            String id = lista[j].getId();
+            Integer k = modificados.contains(id) ? null : anterior.posiciones.get(id);
+            copias[j] = k == null ? -1 : k;
+            if (k == null) generados.add(lista[j]);
+        }
+        Secciones secciones = Secciones.deIndice(generados.toArray(new Proyecto[0]), tareas);
+        long[] generadas = new long[generados.size() + 1];
+        long[] limites = new long[lista.length + 1];
+
+        reemplazar(anterior.archivo, salida -> {
+            try (FileChannel previo = FileChannel.open(anterior.archivo.toPath(), StandardOpenOption.READ)) {
+                encabezado(salida);
+                limites[0] = salida.posicion();
+                Bloque bloque = new Bloque(secciones);
+                int g = 0;
+                for (int j = 0; j < lista.length; ) {
+                    int inicio = j;
+                    if (copias[j] >= 0) {
+                        // Secciones seguidas en el reporte anterior se copian juntas.
+                        long desde = anterior.limites[copias[j]];
+                        long hasta = anterior.limites[copias[j] + 1];
+                        limites[++j] = limites[inicio] + hasta - desde;
+                        while (j < lista.length && copias[j] >= 0 && anterior.limites[copias[j]] == hasta) {
+                            hasta = anterior.limites[copias[j] + 1];
+                            limites[j + 1] = limites[j] + hasta - anterior.limites[copias[j]];
+                            j++;
+                        }
+                        salida.transferir(previo, desde, hasta - desde);
+                    } else {
+                        int primero = g;
+                        while (j < lista.length && copias[j] < 0) {
+                            j++;
+                            g++;
+                        }
+                        for (int[] b : secciones.bloques(primero, g)) bloque.escribir(b, salida, generadas);
+                        for (int i = inicio; i < j; i++) limites[i + 1] = generadas[primero + i - inicio + 1];
+                    }
+                }
+            }
+            escribirResumen(salida, resumen);
+        });
+        return new Indice(anterior.archivo, lista, limites);
+    }
+
+    /**
+     * Genera los bloques en tandas de uno por hilo, cada uno en su buffer, y
+     * escribe cada tanda en orden con una escritura agrupada.
+     */
+    private static void escribirEnParalelo(Secciones secciones, List<int[]> bloques, int hilos,
+                                           EscritorUtf8 salida, long[] limites) throws IOException {
+        Bloque[] trabajo = new Bloque[hilos];
+        EscritorUtf8[] textos = new EscritorUtf8[hilos];
+        for (int h = 0; h < hilos; h++) {
+            trabajo[h] = new Bloque(secciones);
+            textos[h] = new EscritorUtf8(null, LINEAS_POR_BLOQUE * 128);
+        }
+        ByteBuffer[] buffers = new ByteBuffer[hilos];
+
+        for (int primero = 0; primero < bloques.size(); primero += hilos) {
+            int tanda = primero;
+            int cantidad = Math.min(hilos, bloques.size() - primero);
+            try {
+                IntStream.range(0, cantidad).parallel().forEach(h -> {
+                    try {
+                        textos[h].reiniciar();
+                        trabajo[h].escribir(bloques.get(tanda + h), textos[h], limites);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            // Los límites quedaron relativos al buffer de cada bloque.
+            long base = salida.posicion();
+            for (int h = 0; h < cantidad; h++) {
+                secciones.desplazar(bloques.get(tanda + h), limites, base);
+                buffers[h] = textos[h].contenido();
+                base += buffers[h].remaining();
+            }
+            salida.escribir(buffers, cantidad);
+        }
+    }
+
+    /**
+     * Escribe en un temporal de la misma carpeta y luego lo renombra sobre el
+     * destino, para que el archivo anterior siga completo mientras se escribe.
+     */
+    private static void reemplazar(File destino, Contenido contenido) throws IOException {
+        Path ruta = destino.toPath().toAbsolutePath();
+        Path temporal = Files.createTempFile(ruta.getParent(), "." + destino.getName() + ".", ".tmp");
+        try {
+            EscritorAtomico.copiarPermisos(ruta, temporal);
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE);
+                 EscritorUtf8 salida = new EscritorUtf8(canal)) {
+                contenido.escribir(salida);
+            }
+            try {
+                Files.move(temporal, ruta, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /** Contenido de un reporte. */
+    private interface Contenido {
+        void escribir(EscritorUtf8 salida) throws IOException;
+    }
+
+    private static void encabezado(EscritorUtf8 salida) throws IOException {
+        linea(salida, "=== REPORTE DE PROYECTOS ===");
+        linea(salida, "Fecha: " + LocalDate.now());
+        linea(salida, "");
+    }
+
+    private static void escribirResumen(EscritorUtf8 salida, Consumer<PrintWriter> resumen) throws IOException {
+        PrintWriter pw = new PrintWriter(salida);
+        resumen.accept(pw);
+        pw.flush();
+        if (pw.checkError()) throw new IOException("No se pudo escribir el resumen del reporte");
+    }
+
+    private static void linea(EscritorUtf8 salida, String texto) throws IOException {
+        salida.write(String.valueOf(texto));
+        salida.write(SALTO);
+    }
+
+    /**
+     * Ubicación de la sección de cada proyecto en un reporte escrito. Solo sirve
+     * mientras el archivo no cambie (ver {@link #vigente}).
+     */
+    static final class Indice {
+
+        private final File archivo;
+
+        /** Número de sección de cada ID de proyecto. */
+        private final Map<String, Integer> posiciones;
+
+        /** Posición del comienzo de cada sección en el archivo, y del resumen al final. */
+        private final long[] limites;
+
+        private final long tamano;
+        private final long modificado;
+
+        private Indice(File archivo, Proyecto[] proyectos, long[] limites) {
+            this.archivo = archivo;
+            this.posiciones = new HashMap<>(proyectos.length * 2);
+            for (int j = 0; j < proyectos.length; j++) posiciones.put(proyectos[j].getId(), j);
+            this.limites = limites;
+            this.tamano = archivo.length();
+            this.modificado = archivo.lastModified();
+        }
+
+        /**
+         * @param destino archivo del reporte.
+         * @return true si el índice corresponde al archivo y este no cambió
+         *         desde que se escribió.
+         */
+        boolean vigente(File destino) {
+            return destino.getAbsoluteFile().equals(archivo.getAbsoluteFile())
+                    && archivo.length() == tamano && archivo.lastModified() == modificado;
+        }
+    }
+
+    /** Proyectos del reporte con sus filas agrupadas. */
+    private static final class Secciones {
+
+        final Proyecto[] proyectos;
+        final FilasTareas filas;
+
+        /** Posición en {@link #agrupadas} de la primera fila de cada proyecto, y el total al final. */
+        final int[] inicios;
+        final int[] agrupadas;
+
+        private Secciones(Proyecto[] proyectos, FilasTareas filas, int[] inicios, int[] agrupadas) {
+            this.proyectos = proyectos;
+            this.filas = filas;
+            this.inicios = inicios;
+            this.agrupadas = agrupadas;
+        }
+
+        /** Agrupa por proyecto todas las filas del almacén, recorriéndolo una vez. */
+        static Secciones agrupar(Proyecto[] lista, FilasTareas filas) {
+            int n = filas.tamano();
+
+            // Número de proyecto de cada código de proyecto.
+            int[] codigos = new int[lista.length];
+            int maximo = -1;
+            for (int j = 0; j < lista.length; j++) {
+                codigos[j] = filas.buscarIdentificador(lista[j].getId());
+                maximo = Math.max(maximo, codigos[j]);
+            }
+            int[] proyectoDe = new int[maximo + 1];
+            Arrays.fill(proyectoDe, -1);
+            for (int j = 0; j < lista.length; j++) {
+                if (codigos[j] >= 0) proyectoDe[codigos[j]] = j;
+            }
+
+            // Conteo por proyecto y ubicación de cada fila a partir del inicio de su
+            // proyecto, recorriendo el almacén en orden.
+            int[] inicios = new int[lista.length + 1];
+            for (int p = 0; p < n; p++) {
+                int j = proyecto(filas, filas.fila(p), proyectoDe);
+                if (j >= 0) inicios[j + 1]++;
+            }
+            for (int j = 0; j < lista.length; j++) inicios[j + 1] += inicios[j];
+            int[] agrupadas = new int[inicios[lista.length]];
+            int[] siguientes = Arrays.copyOf(inicios, lista.length);
+            for (int p = 0; p < n; p++) {
+                int f = filas.fila(p);
+                int j = proyecto(filas, f, proyectoDe);
+                if (j >= 0) agrupadas[siguientes[j]++] = f;
+            }
+            return new Secciones(lista, filas, inicios, agrupadas);
+        }
+
+        /** Toma las filas de cada proyecto del índice del almacén, sin recorrerlo. */
+        static Secciones deIndice(Proyecto[] lista, TareaStore tareas) {
+            int[][] porProyecto = new int[lista.length][];
+            int[] inicios = new int[lista.length + 1];
+            for (int j = 0; j < lista.length; j++) {
+                porProyecto[j] = tareas.indice().filasDeProyecto(lista[j].getId());
+                tareas.ordenarPorPosicion(porProyecto[j], porProyecto[j].length);
+                inicios[j + 1] = inicios[j] + porProyecto[j].length;
+            }
+            int[] agrupadas = new int[inicios[lista.length]];
+            for (int j = 0; j < lista.length; j++) {
+                System.arraycopy(porProyecto[j], 0, agrupadas, inicios[j], porProyecto[j].length);
+            }
+            return new Secciones(lista, tareas.filas(), inicios, agrupadas);
+        }
+
+        /** @return número de proyecto de la fila, o -1 si su proyecto no está en el reporte. */
+        private static int proyecto(FilasTareas filas, int f, int[] proyectoDe) {
+            int codigo = filas.codigoProyecto(f);
+            return codigo >= 0 && codigo < proyectoDe.length ? proyectoDe[codigo] : -1;
+        }
+
+        /**
+         * Divide en bloques los proyectos entre dos números. Cada bloque es
+         * <code>{primer proyecto, proyecto siguiente al último, primera tarea, tarea siguiente a la última}</code>,
+         * con las tareas como posiciones en {@link #agrupadas}.
+         */
+        List<int[]> bloques(int desde, int hasta) {
+            List<int[]> bloques = new ArrayList<>();
+            int j = desde;
+            while (j < hasta) {
+                if (inicios[j + 1] - inicios[j] >= LINEAS_POR_BLOQUE) {
+                    for (int i = inicios[j]; i < inicios[j + 1]; i += LINEAS_POR_BLOQUE) {
+                        bloques.add(new int[] {j, j + 1, i, Math.min(i + LINEAS_POR_BLOQUE, inicios[j + 1])});
+                    }
+                    j++;
+                    continue;
+                }
+                int primero = j;
+                while (j < hasta && inicios[j + 1] - inicios[primero] + (j + 1 - primero) <= LINEAS_POR_BLOQUE) {
+                    j++;
+                }
+                bloques.add(new int[] {primero, j, inicios[primero], inicios[j]});
+            }
+            return bloques;
+        }
+
+        /** Suma una posición a los límites de las secciones que terminan en el bloque. */
+        void desplazar(int[] bloque, long[] limites, long base) {
+            for (int j = bloque[0]; j < bloque[1]; j++) {
+                if (inicios[j + 1] <= bloque[3]) limites[j + 1] += base;
+            }
+        }
+    }
+
+    /** Escribe bloques del reporte, reutilizando sus buffers de trabajo. */
+    private static final class Bloque {
+
+        private final Secciones secciones;
+        private final EscritorUtf8 lineas;
+        private final long[] claves;
+        private final int[] desde;
+        private final int[] hasta;
+
+        Bloque(Secciones secciones) {
+            this.secciones = secciones;
+            int tamano = Math.min(LINEAS_POR_BLOQUE, secciones.agrupadas.length);
+            claves = new long[tamano];
+            desde = new int[tamano];
+            hasta = new int[tamano];
+            lineas = new EscritorUtf8(null, tamano * 128);
+        }
+
+        /**
+         * Escribe las secciones de los proyectos de un bloque y anota en
+         * <code>limites[j + 1]</code> la posición de la salida donde termina la
+         * sección de cada proyecto <code>j</code> que se completa en el bloque.
+         */
+        void escribir(int[] bloque, EscritorUtf8 salida, long[] limites) throws IOException {
+            int primera = bloque[2];
+            int ultima = bloque[3];
+            preparar(primera, ultima);
+            int[] inicios = secciones.inicios;
+            for (int j = bloque[0]; j < bloque[1]; j++) {
+                // Un proyecto repartido en varios bloques lleva su encabezado en
+                // el primero y la línea en blanco final en el último.
+                if (inicios[j] >= primera) {
+                    Proyecto proyecto = secciones.proyectos[j];
+                    salida.write("Proyecto: ");
+                    linea(salida, proyecto.getNombre());
+                    salida.write("ID: ");
+                    linea(salida, proyecto.getId());
+                    salida.write("Responsable: ");
+                    linea(salida, proyecto.getResponsable());
+                    salida.write("Total de tareas: ");
+                    linea(salida, String.valueOf(inicios[j + 1] - inicios[j]));
+                    if (inicios[j + 1] > inicios[j]) linea(salida, "Tareas:");
+                }
+                for (int i = Math.max(inicios[j], primera), fin = Math.min(inicios[j + 1], ultima); i < fin; i++) {
+                    lineas.copiarA(salida, desde[i - primera], hasta[i - primera]);
+                }
+                if (inicios[j + 1] <= ultima) {
+                    linea(salida, "");
+                    limites[j + 1] = salida.posicion();
+                }
+            }
+        }
+
+        /** Codifica las líneas de las tareas entre dos posiciones, leyendo las filas en orden. */
+        private void preparar(int primera, int ultima) throws IOException {
+            FilasTareas filas = secciones.filas;
+            int n = ultima - primera;
+            for (int k = 0; k < n; k++) claves[k] = (long) secciones.agrupadas[primera + k] << 32 | k;
+            Arrays.sort(claves, 0, n);
+            lineas.reiniciar();
+            for (int c = 0; c < n; c++) {
+                int f = (int) (claves[c] >>> 32);
+                int k = (int) claves[c];
+                desde[k] = lineas.tamano();
+                lineas.write("  - ");
+                lineas.write(String.valueOf(filas.descripcion(f)));
+                lineas.write(" | Tipo: ");
+                lineas.write(String.valueOf(filas.tipo(f)));
+                lineas.write(" | Estado: ");
+                lineas.write(String.valueOf(filas.estado(f)));
+                lineas.write(" | Responsable: ");
+                lineas.write(String.valueOf(filas.responsable(f)));
+                lineas.write(" | Complejidad: ");
+                linea(lineas, filas.complejidad(f));
+                hasta[k] = lineas.tamano();
+            }
+        }
+    }
+}
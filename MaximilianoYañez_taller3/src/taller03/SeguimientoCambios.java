@@ -0,0 +1,101 @@
+package taller03;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registro de qué datos del sistema cambiaron y cuáles ya están guardados.
+ * <p>
+ * Cada modificación recibe un número de secuencia creciente. Por cada colección
+ * (usuarios, proyectos y tareas) se guarda el número de su última modificación y
+ * el de la última versión escrita en su archivo de texto; la colección está
+ * modificada mientras el primero sea mayor que el segundo. Además se guarda la
+ * última modificación de cada proyecto, contando también los cambios en sus tareas,
+ * para que otros procesos (por ejemplo, el reporte) sepan qué proyectos revisar.
+ * </p>
+ */
+public final class SeguimientoCambios {
+
+    /** Colecciones de datos del sistema, cada una con su propio archivo. */
+    public enum Coleccion { USUARIOS, PROYECTOS, TAREAS }
+
+    private long secuencia = 0;
+    private final long[] modificada = new long[Coleccion.values().length];
+    private final long[] guardada = new long[Coleccion.values().length];
+    private final Map<String, Long> porProyecto = new HashMap<>();
+
+    /**
+     * Registra una modificación en una colección.
+     *
+     * @param c colección modificada.
+     */
+    public synchronized void marcar(Coleccion c) {
+        modificada[c.ordinal()] = ++secuencia;
+    }
+
+    /**
+     * Registra una modificación en una colección que afecta a un proyecto.
+     *
+     * @param c          colección modificada.
+     * @param proyectoId proyecto afectado (el propio proyecto o el dueño de la tarea).
+     */
+    public synchronized void marcar(Coleccion c, String proyectoId) {
+        marcar(c);
+        porProyecto.put(proyectoId, secuencia);
+    }
+
+    /**
+     * @param c colección a consultar.
+     * @return true si la colección tiene cambios que no están en su archivo de texto.
+     */
+    public synchronized boolean estaModificada(Coleccion c) {
+        return modificada[c.ordinal()] > guardada[c.ordinal()];
+    }
+
+    /**
+     * @param c colección a consultar.
+     * @return número de la última modificación de la colección, para luego
+     *         informarlo en {@link #marcarGuardada}.
+     */
+    public synchronized long version(Coleccion c) {
+        return modificada[c.ordinal()];
+    }
+
+    /**
+     * Indica que el archivo de una colección quedó guardado con el estado que tenía
+     * en la versión indicada. Los cambios posteriores siguen pendientes.
+     *
+     * @param c       colección guardada.
+     * @param version valor de {@link #version} tomado junto con la copia de los datos guardados.
+     */
+    public synchronized void marcarGuardada(Coleccion c, long version) {
+        guardada[c.ordinal()] = Math.max(guardada[c.ordinal()], version);
+    }
+
+    /** @return número de la última modificación registrada en cualquier colección. */
+    public synchronized long versionActual() {
+        return secuencia;
+    }
+
+    /**
+     * @param proyectoId proyecto a consultar.
+     * @return número de la última modificación del proyecto o de sus tareas, o 0 si no tuvo cambios.
+     */
+    public synchronized long versionProyecto(String proyectoId) {
+        return porProyecto.getOrDefault(proyectoId, 0L);
+    }
+
+    /**
+     * @param version número de secuencia de referencia.
+     * @return IDs de los proyectos modificados después de esa versión.
+     */
+    public synchronized Set<String> proyectosModificadosDesde(long version) {
+        Set<String> resultado = new HashSet<>();
+        for (Map.Entry<String, Long> e : porProyecto.entrySet()) {
+            if (e.getValue() > version) resultado.add(e.getKey());
+        }
+        return resultado;
+    }
+}
@@ -1,14 +1,25 @@
 package taller03;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Clase principal del sistema. Encargada de gestionar usuarios, proyectos y tareas.
@@ -36,116 +47,691 @@ public class Sistema {
         return instancia;
     }
 
-    // Listas principales del sistema
-    private ArrayList<Usuario> listaUsuarios = new ArrayList<>();
-    private ArrayList<Proyecto> listaProyectos = new ArrayList<>();
-    private ArrayList<Tarea> listaTareas = new ArrayList<>();
+    // Colecciones principales del sistema. Usuarios y proyectos se indexan por su
+    // clave (el usuario sin distinguir mayúsculas) y conservan el orden de inserción.
+    private final Map<String, Usuario> usuariosPorNombre = new LinkedHashMap<>();
+    private final Map<String, Proyecto> proyectosPorId = new LinkedHashMap<>();
+    private TareaStore listaTareas = new TareaStore();
 
     private DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private Scanner sc = new Scanner(System.in);
 
+    /**
+     * Indica si los archivos se cargan en paralelo (por tramos y los tres a la vez).
+     * Se activa con la propiedad de sistema <code>taller03.cargaParalela=true</code>.
+     */
+    private boolean cargaParalela = Boolean.getBoolean("taller03.cargaParalela");
+
+    /** Indica si los datos ya fueron cargados, para no volver a leerlos al abrir el menú. */
+    private boolean datosCargados = false;
+
+    /** Cantidad de campos por línea en cada archivo de datos. */
+    private static final int CAMPOS_USUARIO = 3;
+    private static final int CAMPOS_PROYECTO = 3;
+    private static final int CAMPOS_TAREA = 8;
+
+    /** Bitácora de cambios de proyectos y tareas. */
+    private static final File ARCHIVO_BITACORA = new File("bitacora.dat");
+
+    /** Tamaño de la bitácora (en bytes) a partir del cual se compacta en segundo plano. */
+    private static final long UMBRAL_COMPACTACION = 4L * 1024 * 1024;
+
+    /** Bitácora abierta para registrar cambios; se abre al registrar el primero. */
+    private volatile Bitacora bitacora;
+
+    /**
+     * Monitor de la apertura de la bitácora, que recorre el archivo y por eso no se
+     * hace con el monitor del sistema. Nunca se toma el del sistema dentro de este.
+     */
+    private final Object aperturaBitacora = new Object();
+
+    /** Hilo en segundo plano que compacta la bitácora. */
+    private final ExecutorService compactador = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "compactador-bitacora");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Compactación en curso o terminada más recientemente. */
+    private Future<?> compactacion;
+
+    /**
+     * Tiempo (ms) que un guardado espera a otros guardados simultáneos para
+     * confirmarlos con un único fsync. Propiedad <code>taller03.ventanaConfirmacionMs</code>.
+     */
+    private static final long VENTANA_CONFIRMACION_MS = Long.getLong("taller03.ventanaConfirmacionMs", 2);
+
+    /** Agrupa los fsync de la bitácora pedidos por guardados concurrentes. */
+    private final ConfirmacionGrupal confirmacionBitacora =
+            new ConfirmacionGrupal(VENTANA_CONFIRMACION_MS, this::sincronizarBitacora);
+
+    /** Agrupa las reescrituras de usuarios.txt pedidas por guardados concurrentes. */
+    private final ConfirmacionGrupal confirmacionUsuarios =
+            new ConfirmacionGrupal(VENTANA_CONFIRMACION_MS, this::escribirUsuarios);
+
+    /**
+     * Modo de escritura diferida: los cambios se encolan y un hilo de persistencia
+     * los escribe en lotes, sin que el menú espere al disco.
+     * Se activa con la propiedad de sistema <code>taller03.escrituraDiferida=true</code>.
+     */
+    private volatile boolean escrituraDiferida = Boolean.getBoolean("taller03.escrituraDiferida");
+
+    /** Cantidad de cambios que provoca la escritura inmediata de un lote. Propiedad <code>taller03.loteDiferido</code>. */
+    private static final int LOTE_DIFERIDO = Integer.getInteger("taller03.loteDiferido", 256);
+
+    /** Tiempo máximo (ms) que un cambio espera en la cola. Propiedad <code>taller03.intervaloDiferidoMs</code>. */
+    private static final long INTERVALO_DIFERIDO_MS = Long.getLong("taller03.intervaloDiferidoMs", 50);
+
+    /** Tiempo máximo (ms) que se espera al salir para escribir los cambios encolados. Propiedad <code>taller03.esperaCierreMs</code>. */
+    private static final long ESPERA_CIERRE_MS = Long.getLong("taller03.esperaCierreMs", 5000);
+
+    /** Hilo de persistencia del modo de escritura diferida (se crea al primer uso). */
+    private PersistenciaDiferida diferida;
+
+    /** Colecciones y proyectos modificados desde el último guardado. */
+    private final SeguimientoCambios cambios = new SeguimientoCambios();
+
+    /** Secciones del último reporte generado (null si no hay) y versión de los cambios que incluye. */
+    private ReporteProyectos.Indice indiceReporte;
+    private long versionReporte;
+
+    /** Registra los cambios de estado de las tareas del sistema. */
+    private final ObservadorTarea observador = (t, anterior) -> {
+        cambios.marcar(SeguimientoCambios.Coleccion.TAREAS, t.getProyectoId());
+        registrarCambio(Bitacora.Operacion.CAMBIAR_ESTADO, t.getId(), t.getEstado());
+    };
+
+    /**
+     * Dónde se guardan las tareas cargadas: <code>memoria</code> (arreglos del heap),
+     * <code>directo</code> (memoria directa, fuera del heap) o <code>archivo</code>
+     * (archivos mapeados en memoria, que se conservan entre ejecuciones).
+     * Propiedad <code>taller03.almacenTareas</code>.
+     */
+    private String almacenTareas = "memoria";
+
+    /** Ruta base de los archivos del almacén de tareas en modo <code>archivo</code>. */
+    private static final File ARCHIVO_ALMACEN_TAREAS = new File("tareas.almacen");
+
     /** Constructor privado para Singleton. */
-    private Sistema(){}
+    private Sistema(){
+        setAlmacenTareas(System.getProperty("taller03.almacenTareas", "memoria"));
+    }
 
     // ========================================================================
     //  MÉTODOS DE CARGA Y GUARDADO
     // ========================================================================
 
     /**
-     * Carga los usuarios desde el archivo usuarios.txt.
+     * Activa o desactiva la carga paralela de los archivos de datos.
+     *
+     * @param cargaParalela true para dividir cada archivo en tramos procesados en
+     *                      paralelo y cargar usuarios, proyectos y tareas a la vez
+     */
+    public void setCargaParalela(boolean cargaParalela) { this.cargaParalela = cargaParalela; }
+
+    /**
+     * Cambia la ventana de agrupación de guardados concurrentes.
+     *
+     * @param ms milisegundos que un guardado espera a otros antes de hacer el fsync (0 para no esperar)
+     */
+    public void setVentanaConfirmacion(long ms) {
+        confirmacionBitacora.setVentanaMs(ms);
+        confirmacionUsuarios.setVentanaMs(ms);
+    }
+
+    /**
+     * Elige dónde se guardan las tareas (ver {@link #almacenTareas}). Reemplaza el
+     * almacén actual por uno vacío, por lo que debe invocarse antes de cargar los datos.
+     * En modo <code>archivo</code>, si los archivos del almacén se cerraron
+     * correctamente y coinciden con tareas.txt, la carga los reutiliza sin leer el texto.
+     *
+     * @param modo "memoria", "directo" o "archivo"
+     */
+    public synchronized void setAlmacenTareas(String modo) {
+        TareaStore nuevo;
+        try {
+            switch (modo) {
+                case "directo":
+                    nuevo = TareaStore.fueraDeHeap();
+                    break;
+                case "archivo":
+                    nuevo = TareaStore.enArchivo(ARCHIVO_ALMACEN_TAREAS, new File("tareas.txt"));
+                    break;
+                default:
+                    modo = "memoria";
+                    nuevo = new TareaStore();
+            }
+        } catch (IOException e) {
+            System.out.println("Error al abrir el almacén de tareas: " + e.getMessage());
+            modo = "memoria";
+            nuevo = new TareaStore();
+        }
+        nuevo.setObservador(observador);
+        almacenTareas = modo;
+        listaTareas = nuevo;
+    }
+
+    /**
+     * Activa o desactiva el modo de escritura diferida. Al desactivarlo se espera a
+     * que se escriban los cambios encolados. Conviene elegir el modo antes de operar.
+     *
+     * @param activa true para que los cambios se escriban en un hilo de persistencia
+     */
+    public void setEscrituraDiferida(boolean activa) {
+        PersistenciaDiferida anterior;
+        synchronized (this) {
+            escrituraDiferida = activa;
+            anterior = activa ? null : diferida;
+            if (!activa) diferida = null;
+        }
+        if (anterior != null) detenerDiferida(anterior);
+    }
+
+    /**
+     * Permite consultar la cantidad de cambios encolados y la latencia de escritura
+     * de los lotes en el modo de escritura diferida.
+     *
+     * @return el hilo de persistencia, o null si el modo no está activo o aún no se usa
+     */
+    public synchronized PersistenciaDiferida getPersistenciaDiferida() {
+        return diferida;
+    }
+
+    /**
+     * Carga usuarios, proyectos y tareas. En modo de carga paralela los tres
+     * archivos se procesan al mismo tiempo; en caso contrario, uno tras otro.
+     */
+    public void cargarDatos() {
+        datosCargados = true;
+        if (!cargaParalela) {
+            cargarUsuarios();
+            cargarProyectos();
+            cargarTareas();
+            return;
+        }
+        CompletableFuture.allOf(
+                CompletableFuture.runAsync(this::cargarUsuarios),
+                CompletableFuture.runAsync(this::cargarProyectos),
+                CompletableFuture.runAsync(this::cargarTareas)
+        ).join();
+    }
+
+    /** Campo i de un usuario, en el orden de usuarios.txt. */
+    private static String campoUsuario(Usuario u, int i) {
+        switch (i) {
+            case 0: return u.getUsername();
+            case 1: return u.getPassword();
+            default: return u.getRol();
+        }
+    }
+
+    /** Campo i de un proyecto, en el orden de proyectos.txt. */
+    private static String campoProyecto(Proyecto p, int i) {
+        switch (i) {
+            case 0: return p.getId();
+            case 1: return p.getNombre();
+            default: return p.getResponsable();
+        }
+    }
+
+    /** Campo i de una tarea, en el orden de tareas.txt. */
+    private static String campoTarea(Tarea t, int i) {
+        switch (i) {
+            case 0: return t.getProyectoId();
+            case 1: return t.getId();
+            case 2: return t.getTipo();
+            case 3: return t.getDescripcion().replace("|","/");
+            case 4: return t.getEstado();
+            case 5: return t.getResponsable();
+            case 6: return t.getComplejidad();
+            default: return t.getFecha();
+        }
+    }
+
+    /**
+     * Agrega una fila de tarea al almacén a partir de sus campos, en el orden de tareas.txt.
+     *
+     * @return fila agregada
+     */
+    private static int agregarFila(TareaStore st, String[] c) {
+        return st.agregar(c[1], c[2], c[3], c[4], c[5], c[6], c[7], c[0]);
+    }
+
+    /** Agrega una fila de tarea leída de tareas.txt; descarta las líneas incompletas. */
+    private static void agregarFila(TareaStore st, LectorRegistros.Registro r) {
+        if (r.numCampos() < 8) return;
+        st.agregar(r.campo(1), r.campo(2), r.campo(3), r.campo(4),
+                   r.campo(5), r.campo(6), r.campo(7), r.campo(0));
+    }
+
+    /**
+     * Lee un archivo de datos agregando a la lista destino cada registro convertido.
+     * Según el modo configurado, el archivo se lee de forma secuencial o por tramos en paralelo.
+     *
+     * @param f         archivo a leer
+     * @param conversor transforma un registro en un objeto, o null para descartarlo
+     * @param destino   lista donde se agregan los objetos, en el orden del archivo
+     */
+    private <T> void leerArchivo(File f, Function<LectorRegistros.Registro, T> conversor,
+                                 List<T> destino) throws IOException {
+        if (cargaParalela) {
+            destino.addAll(LectorRegistros.leerEnParalelo(f, conversor));
+            return;
+        }
+        LectorRegistros.leer(f, r -> {
+            T obj = conversor.apply(r);
+            if (obj != null) destino.add(obj);
+        });
+    }
+
+    /**
+     * Carga los usuarios desde el archivo usuarios.txt, o desde su snapshot
+     * binario si este coincide con el archivo de texto.
      * El formato esperado es: usuario|password|rol
      */
     public void cargarUsuarios() {
         File f = new File("usuarios.txt");
         if (!f.exists()) return;
         
-        try (Scanner sc = new Scanner(f)) {
-            listaUsuarios.clear();
-            while (sc.hasNextLine()) {
-                String linea = sc.nextLine().trim();
-                if (linea.isEmpty() || linea.startsWith("#")) continue;
-                
-                String[] p = linea.split("\\|");
-                if (p.length < 3) continue;
-                
-                listaUsuarios.add(new Usuario(p[0].trim(), p[1].trim(), p[2].trim()));
+        try {
+            usuariosPorNombre.clear();
+            List<Usuario> usuarios = new ArrayList<>();
+            if (!Snapshot.cargar(f, CAMPOS_USUARIO, c -> new Usuario(c[0], c[1], c[2]), usuarios)) {
+                leerArchivo(f, r -> r.numCampos() < 3 ? null
+                        : new Usuario(r.campo(0), r.campo(1), r.campo(2)), usuarios);
             }
+            for (Usuario u : usuarios) usuariosPorNombre.putIfAbsent(claveUsuario(u.getUsername()), u);
         } catch(Exception e) {}
     }
 
     /**
-     * Carga los proyectos desde proyectos.txt.
+     * Carga los proyectos desde proyectos.txt, o desde su snapshot binario
+     * si este coincide con el archivo de texto, y luego aplica los cambios
+     * registrados en la bitácora.
      * Formato: id|nombre|responsable
      */
     public void cargarProyectos() {
         File f = new File("proyectos.txt");
-        if (!f.exists()) return;
-        
-        try (Scanner sc = new Scanner(f)) {
-            listaProyectos.clear();
-            while (sc.hasNextLine()) {
-                String linea = sc.nextLine().trim();
-                if (linea.isEmpty() || linea.startsWith("#")) continue;
-                
-                String[] p = linea.split("\\|");
-                if (p.length < 3) continue;
-                
-                listaProyectos.add(new Proyecto(p[0].trim(), p[1].trim(), p[2].trim()));
+
+        try {
+            synchronized (this) { indiceReporte = null; }
+            proyectosPorId.clear();
+            List<Proyecto> proyectos = new ArrayList<>();
+            if (f.exists() && !Snapshot.cargar(f, CAMPOS_PROYECTO,
+                    c -> new Proyecto(c[0], c[1], c[2]), proyectos)) {
+                leerArchivo(f, r -> r.numCampos() < 3 ? null
+                        : new Proyecto(r.campo(0), r.campo(1), r.campo(2)), proyectos);
             }
+            for (Proyecto p : proyectos) proyectosPorId.putIfAbsent(p.getId(), p);
+            reproducirBitacoraProyectos();
         } catch(Exception e) {}
     }
 
     /**
-     * Carga las tareas desde tareas.txt utilizando la TareaFactory
-     * para instanciar la subclase correspondiente.
+     * Carga las tareas desde tareas.txt directamente en las columnas del
+     * almacén; la TareaFactory crea la vista de la subclase correspondiente
+     * recién cuando se usa cada tarea. Si el snapshot binario coincide con el
+     * archivo de texto se usa en lugar de este. Luego se aplican los cambios
+     * registrados en la bitácora. Si el almacén en archivo conserva los datos de
+     * tareas.txt de la ejecución anterior, solo se aplica la bitácora.
+     * Formato: proyectoId|id|tipo|descripcion|estado|responsable|complejidad|fecha
      */
     public void cargarTareas() {
         File f = new File("tareas.txt");
-        if (!f.exists()) return;
-
-        try (Scanner sc = new Scanner(f)) {
-            listaTareas.clear();
-            while (sc.hasNextLine()) {
-                String linea = sc.nextLine().trim();
-                if (linea.isEmpty() || linea.startsWith("#")) continue;
-
-                String[] p = linea.split("\\|");
-                if (p.length < 8) continue;
 
-                Tarea t = TareaFactory.createTarea(
-                        p[1].trim(), p[2].trim(), p[3].trim(), p[4].trim(),
-                        p[5].trim(), p[6].trim(), p[7].trim(), p[0].trim()
-                );
-
-                if (t != null) listaTareas.add(t);
+        try {
+            synchronized (this) { indiceReporte = null; }
+            if (!listaTareas.datosRestaurados()) {
+                listaTareas.clear();
+                if (f.exists() && !Snapshot.cargar(f, CAMPOS_TAREA, c -> agregarFila(listaTareas, c))) {
+                    if (cargaParalela) {
+                        for (TareaStore tramo : LectorRegistros.leerEnParalelo(f, listaTareas::tramo, Sistema::agregarFila)) {
+                            listaTareas.agregarTodas(tramo);
+                        }
+                    } else {
+                        LectorRegistros.leer(f, r -> agregarFila(listaTareas, r));
+                    }
+                }
             }
+            reproducirBitacoraTareas();
         } catch(Exception e) {
             e.printStackTrace();
         }
     }
 
-    /** Guarda todos los usuarios en usuarios.txt. */
+    /**
+     * Aplica sobre proyectosPorId los registros de proyectos de la bitácora.
+     * Agregar un proyecto con un ID ya existente lo reemplaza (y lo deja al final),
+     * por lo que volver a aplicar registros ya incorporados en proyectos.txt no
+     * duplica datos.
+     */
+    private void reproducirBitacoraProyectos() throws IOException {
+        Bitacora.reproducir(ARCHIVO_BITACORA, (op, c) -> {
+            if (op == Bitacora.Operacion.AGREGAR_PROYECTO) {
+                proyectosPorId.remove(c[0]);
+                proyectosPorId.put(c[0], new Proyecto(c[0], c[1], c[2]));
+                cambios.marcar(SeguimientoCambios.Coleccion.PROYECTOS, c[0]);
+            } else if (op == Bitacora.Operacion.ELIMINAR_PROYECTO) {
+                proyectosPorId.remove(c[0]);
+                cambios.marcar(SeguimientoCambios.Coleccion.PROYECTOS, c[0]);
+            }
+        });
+    }
+
+    /**
+     * Aplica sobre listaTareas los registros de tareas de la bitácora, incluida
+     * la eliminación en cascada de las tareas de un proyecto eliminado.
+     * Al igual que con los proyectos, agregar una tarea con un ID existente la
+     * reemplaza. Trabaja sobre las filas del almacén, sin crear las vistas, y
+     * busca las tareas con el índice por ID del almacén, que solo se crea si hay
+     * una bitácora que reproducir.
+     */
+    private void reproducirBitacoraTareas() throws IOException {
+        if (!Bitacora.existe(ARCHIVO_BITACORA)) return;
+
+        Bitacora.reproducir(ARCHIVO_BITACORA, (op, c) -> {
+            switch (op) {
+                case AGREGAR_TAREA: {
+                    int previa = listaTareas.filaPorId(c[1]);
+                    if (previa >= 0) listaTareas.eliminarFila(previa);
+                    agregarFila(listaTareas, c);
+                    cambios.marcar(SeguimientoCambios.Coleccion.TAREAS, c[0]);
+                    return;
+                }
+                case ELIMINAR_TAREA: {
+                    int previa = listaTareas.filaPorId(c[0]);
+                    if (previa < 0) return;
+                    cambios.marcar(SeguimientoCambios.Coleccion.TAREAS, listaTareas.proyectoId(previa));
+                    listaTareas.eliminarFila(previa);
+                    return;
+                }
+                case CAMBIAR_ESTADO: {
+                    int f = listaTareas.filaPorId(c[0]);
+                    if (f < 0) return;
+                    listaTareas.asignarEstado(f, c[1]);
+                    cambios.marcar(SeguimientoCambios.Coleccion.TAREAS, listaTareas.proyectoId(f));
+                    return;
+                }
+                case ELIMINAR_PROYECTO:
+                    listaTareas.eliminarDeProyecto(c[0]);
+                    cambios.marcar(SeguimientoCambios.Coleccion.TAREAS, c[0]);
+                    return;
+                default:
+                    return;
+            }
+        });
+    }
+
+    /**
+     * Guarda todos los usuarios en usuarios.txt y actualiza su snapshot.
+     * La escritura es atómica y los guardados simultáneos se agrupan en uno solo.
+     */
     public void saveUsuarios() {
-        try (PrintWriter pw = new PrintWriter(new FileWriter("usuarios.txt"))) {
-            for (Usuario u : listaUsuarios) {
+        if (escrituraDiferida) {
+            diferida().encolar(confirmacionUsuarios::confirmar);
+            return;
+        }
+        try {
+            confirmacionUsuarios.confirmar();
+        } catch(IOException e) {
+            System.out.println("Error al guardar usuarios: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Guarda los cambios de proyectos. Los cambios ya están registrados en la
+     * bitácora, por lo que solo se escriben en disco los registros pendientes;
+     * proyectos.txt se reescribe al compactar la bitácora.
+     */
+    public void saveProyectos() {
+        guardarBitacora();
+    }
+
+    /**
+     * Guarda los cambios de tareas. Igual que {@link #saveProyectos()}, solo escribe
+     * los registros pendientes de la bitácora; tareas.txt se reescribe al compactarla.
+     */
+    public void saveTareas() {
+        guardarBitacora();
+    }
+
+    /**
+     * Guarda solo lo que cambió desde el último guardado: usuarios.txt si hubo
+     * cambios de usuarios y la bitácora si hay cambios de proyectos o tareas.
+     * Luego termina la persistencia pendiente con {@link #cerrar()}.
+     * Se usa al salir del sistema; en modo de escritura diferida la espera está
+     * acotada por <code>taller03.esperaCierreMs</code>.
+     */
+    public void guardarCambios() {
+        if (cambios.estaModificada(SeguimientoCambios.Coleccion.USUARIOS)) saveUsuarios();
+        if (cambios.estaModificada(SeguimientoCambios.Coleccion.PROYECTOS)
+                || cambios.estaModificada(SeguimientoCambios.Coleccion.TAREAS)) {
+            guardarBitacora();
+        }
+        cerrar();
+    }
+
+    /**
+     * Reescribe proyectos.txt y tareas.txt (junto con sus snapshots) con el estado
+     * actual y descarta los registros de la bitácora que ya quedaron incorporados.
+     * Solo se reescriben los archivos cuya colección cambió desde su último guardado.
+     * Los cambios que ocurran mientras tanto quedan en una bitácora nueva.
+     */
+    public void compactar() {
+        List<Proyecto> proyectos = null;
+        List<Tarea> tareas = null;
+        long versionProyectos, versionTareas;
+        Bitacora b;
+        try {
+            b = bitacora();
+            // Se rota antes de copiar las listas y sin bloquear el sistema: todo registro
+            // del segmento anterior ya está en la copia, y volver a aplicar uno de la
+            // bitácora nueva que también esté en la copia no altera el resultado.
+            b.rotar();
+        } catch (IOException e) {
+            System.out.println("Error al compactar la bitácora: " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            versionProyectos = cambios.version(SeguimientoCambios.Coleccion.PROYECTOS);
+            versionTareas = cambios.version(SeguimientoCambios.Coleccion.TAREAS);
+            if (cambios.estaModificada(SeguimientoCambios.Coleccion.PROYECTOS)) {
+                proyectos = new ArrayList<>(proyectosPorId.values());
+            }
+            if (cambios.estaModificada(SeguimientoCambios.Coleccion.TAREAS)) {
+                tareas = listaTareas.copia();
+            }
+        }
+
+        try {
+            if (proyectos != null) {
+                escribirProyectos(proyectos);
+                cambios.marcarGuardada(SeguimientoCambios.Coleccion.PROYECTOS, versionProyectos);
+            }
+            if (tareas != null) {
+                escribirTareas(tareas);
+                cambios.marcarGuardada(SeguimientoCambios.Coleccion.TAREAS, versionTareas);
+            }
+            b.descartarAnterior();
+        } catch (IOException e) {
+            System.out.println("Error al compactar la bitácora: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Termina las operaciones de persistencia pendientes: escribe los cambios
+     * encolados en modo diferido, espera una compactación en curso, cierra la
+     * bitácora y el almacén de tareas. Se invoca al salir del sistema.
+     */
+    public void cerrar() {
+        PersistenciaDiferida d;
+        synchronized (this) {
+            d = diferida;
+            diferida = null;
+        }
+        if (d != null) detenerDiferida(d);
+
+        Future<?> pendiente;
+        synchronized (this) { pendiente = compactacion; }
+        if (pendiente != null) {
+            try {
+                pendiente.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                System.out.println("Error al compactar la bitácora: " + e.getCause());
+            }
+        }
+        // Con el almacén en archivo se incorporan los cambios a tareas.txt, para que
+        // el próximo inicio pueda reutilizar el almacén en lugar de leer el texto.
+        if (almacenTareas.equals("archivo") && cambios.estaModificada(SeguimientoCambios.Coleccion.TAREAS)) {
+            compactar();
+        }
+        synchronized (this) {
+            synchronized (aperturaBitacora) {
+                if (bitacora != null) {
+                    try {
+                        bitacora.close();
+                    } catch (IOException e) {
+                        System.out.println("Error al cerrar la bitácora: " + e.getMessage());
+                    }
+                    bitacora = null;
+                }
+            }
+            // Solo se marca consistente con tareas.txt si no quedan cambios sin incorporar.
+            if (!cambios.estaModificada(SeguimientoCambios.Coleccion.TAREAS)) {
+                try {
+                    listaTareas.cerrar(new File("tareas.txt"));
+                } catch (IOException e) {
+                    System.out.println("Error al cerrar el almacén de tareas: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Fuerza a disco la bitácora (agrupando guardados concurrentes en un solo fsync)
+     * y, si creció demasiado, inicia su compactación. En modo de escritura diferida
+     * solo pide al hilo de persistencia que escriba lo encolado.
+     */
+    private void guardarBitacora() {
+        if (escrituraDiferida) {
+            diferida().solicitarEscritura();
+            return;
+        }
+        try {
+            confirmacionBitacora.confirmar();
+            revisarCompactacion();
+        } catch (IOException e) {
+            System.out.println("Error al guardar los cambios: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Inicia la compactación en segundo plano si la bitácora creció demasiado. El
+     * tamaño se consulta sin el monitor del sistema, porque espera mientras el
+     * compactador rota la bitácora (escritura, fsync y copia del segmento).
+     */
+    private void revisarCompactacion() throws IOException {
+        Bitacora b = bitacora;
+        if (b == null || b.tamano() <= UMBRAL_COMPACTACION) return;
+        synchronized (this) {
+            if (bitacora == b && (compactacion == null || compactacion.isDone())) {
+                compactacion = compactador.submit(this::compactar);
+            }
+        }
+    }
+
+    /** Crea el hilo de persistencia la primera vez que se necesita. */
+    private synchronized PersistenciaDiferida diferida() {
+        if (diferida == null) {
+            diferida = new PersistenciaDiferida(LOTE_DIFERIDO, INTERVALO_DIFERIDO_MS, () -> {
+                sincronizarBitacora();
+                revisarCompactacion();
+            });
+        }
+        return diferida;
+    }
+
+    /** Detiene un hilo de persistencia esperando como máximo {@link #ESPERA_CIERRE_MS}. */
+    private void detenerDiferida(PersistenciaDiferida d) {
+        if (!d.detener(ESPERA_CIERRE_MS)) {
+            System.out.println("Advertencia: quedaron " + d.pendientes() + " cambios sin guardar.");
+        }
+    }
+
+    /** Escribe y fuerza a disco los registros pendientes de la bitácora. */
+    private void sincronizarBitacora() throws IOException {
+        Bitacora b = bitacora;
+        if (b != null) b.sincronizar();
+    }
+
+    /**
+     * Abre la bitácora la primera vez que se necesita, sin el monitor del sistema:
+     * la apertura lee el archivo completo.
+     */
+    private Bitacora bitacora() throws IOException {
+        Bitacora b = bitacora;
+        if (b != null) return b;
+        synchronized (aperturaBitacora) {
+            if (bitacora == null) bitacora = new Bitacora(ARCHIVO_BITACORA);
+            return bitacora;
+        }
+    }
+
+    /**
+     * Registra una operación en la bitácora. En modo de escritura diferida solo
+     * la encola para el hilo de persistencia.
+     *
+     * @param op     operación realizada
+     * @param campos campos de la operación
+     */
+    private void registrarCambio(Bitacora.Operacion op, String... campos) {
+        if (escrituraDiferida) {
+            diferida().encolar(() -> bitacora().registrar(op, campos));
+            return;
+        }
+        try {
+            bitacora().registrar(op, campos);
+        } catch (IOException e) {
+            System.out.println("Error al registrar el cambio: " + e.getMessage());
+        }
+    }
+
+    /** Escribe usuarios.txt y su snapshot con los usuarios actuales. */
+    private void escribirUsuarios() throws IOException {
+        List<Usuario> usuarios;
+        long version;
+        synchronized (this) {
+            usuarios = new ArrayList<>(usuariosPorNombre.values());
+            version = cambios.version(SeguimientoCambios.Coleccion.USUARIOS);
+        }
+        File f = new File("usuarios.txt");
+        escribirTexto(f, pw -> {
+            for (Usuario u : usuarios) {
                 pw.println(u.getUsername() + "|" + u.getPassword() + "|" + u.getRol());
             }
-        } catch(IOException e) {}
+        });
+        Snapshot.guardar(f, usuarios, CAMPOS_USUARIO, Sistema::campoUsuario);
+        cambios.marcarGuardada(SeguimientoCambios.Coleccion.USUARIOS, version);
     }
 
-    /** Guarda todos los proyectos en proyectos.txt. */
-    public void saveProyectos() {
-        try (PrintWriter pw = new PrintWriter(new FileWriter("proyectos.txt"))) {
-            for (Proyecto p : listaProyectos) {
+    /** Escribe proyectos.txt y su snapshot con los proyectos indicados. */
+    private void escribirProyectos(List<Proyecto> proyectos) throws IOException {
+        File f = new File("proyectos.txt");
+        escribirTexto(f, pw -> {
+            for (Proyecto p : proyectos) {
                 pw.println(p.getId() + "|" + p.getNombre() + "|" + p.getResponsable());
             }
-        } catch(IOException e) {}
+        });
+        Snapshot.guardar(f, proyectos, CAMPOS_PROYECTO, Sistema::campoProyecto);
     }
 
-    /** Guarda todas las tareas en tareas.txt. */
-    public void saveTareas() {
-        try (PrintWriter pw = new PrintWriter(new FileWriter("tareas.txt"))) {
-            for (Tarea t : listaTareas) {
+    /** Escribe tareas.txt y su snapshot con las tareas indicadas. */
+    private void escribirTareas(List<Tarea> tareas) throws IOException {
+        File f = new File("tareas.txt");
+        escribirTexto(f, pw -> {
+            for (Tarea t : tareas) {
                 pw.println(
                         t.getProyectoId() + "|" +
                         t.getId() + "|" +
@@ -157,7 +743,108 @@ public class Sistema {
                         t.getFecha()
                 );
             }
-        } catch(IOException e) {}
+        });
+        Snapshot.guardar(f, tareas, CAMPOS_TAREA, Sistema::campoTarea);
+    }
+
+    /**
+     * Reemplaza un archivo de texto de forma atómica mediante {@link EscritorAtomico}.
+     *
+     * @param f      archivo a escribir
+     * @param lineas escribe las líneas del archivo
+     * @throws IOException si falla la escritura; el archivo anterior queda intacto
+     */
+    private static void escribirTexto(File f, Consumer<PrintWriter> lineas) throws IOException {
+        EscritorAtomico.escribir(f, salida -> {
+            PrintWriter pw = new PrintWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+            lineas.accept(pw);
+            pw.flush();
+            if (pw.checkError()) throw new IOException("No se pudo escribir " + f.getName());
+        });
+    }
+
+    // ========================================================================
+    //  OPERACIONES SOBRE PROYECTOS Y TAREAS
+    // ========================================================================
+
+    /**
+     * Agrega un proyecto y registra el cambio en la bitácora.
+     *
+     * @param p proyecto a agregar
+     * @return false si ya existe un proyecto con el mismo ID (no se agrega)
+     */
+    private synchronized boolean registrarProyecto(Proyecto p) {
+        if (proyectosPorId.putIfAbsent(p.getId(), p) != null) return false;
+        cambios.marcar(SeguimientoCambios.Coleccion.PROYECTOS, p.getId());
+        registrarCambio(Bitacora.Operacion.AGREGAR_PROYECTO, p.getId(), p.getNombre(), p.getResponsable());
+        return true;
+    }
+
+    /**
+     * Elimina un proyecto junto con sus tareas y registra el cambio en la bitácora.
+     *
+     * @param p proyecto a eliminar
+     */
+    private synchronized void quitarProyecto(Proyecto p) {
+        proyectosPorId.remove(p.getId());
+        listaTareas.eliminarDeProyecto(p.getId());
+        cambios.marcar(SeguimientoCambios.Coleccion.PROYECTOS, p.getId());
+        cambios.marcar(SeguimientoCambios.Coleccion.TAREAS, p.getId());
+        registrarCambio(Bitacora.Operacion.ELIMINAR_PROYECTO, p.getId());
+    }
+
+    /**
+     * Agrega una tarea al almacén, cuyo observador registra sus cambios de
+     * estado, y registra el alta en la bitácora.
+     *
+     * @param t tarea a agregar
+     * @return false si ya existe una tarea con el mismo ID (no se agrega)
+     */
+    private synchronized boolean registrarTarea(Tarea t) {
+        if (listaTareas.buscarPorId(t.getId()) != null) return false;
+        listaTareas.add(t);
+        cambios.marcar(SeguimientoCambios.Coleccion.TAREAS, t.getProyectoId());
+        String[] campos = new String[CAMPOS_TAREA];
+        for (int i = 0; i < CAMPOS_TAREA; i++) campos[i] = campoTarea(t, i);
+        registrarCambio(Bitacora.Operacion.AGREGAR_TAREA, campos);
+        return true;
+    }
+
+    /**
+     * Verifica en una sola pasada qué tareas de una importación no cumplen la regla
+     * de una tarea por responsable y día, contra las tareas existentes y entre ellas
+     * (se conserva la primera). Cada verificación cuesta O(1).
+     *
+     * @param nuevas tareas a importar, en orden
+     * @return posiciones de las tareas rechazadas
+     */
+    public synchronized BitSet validarAdmision(List<? extends Tarea> nuevas) {
+        return listaTareas.rechazadasPorDia(nuevas);
+    }
+
+    /**
+     * Elimina una tarea y registra el cambio en la bitácora.
+     *
+     * @param t tarea a eliminar
+     */
+    private synchronized void quitarTarea(Tarea t) {
+        listaTareas.remove(t);
+        cambios.marcar(SeguimientoCambios.Coleccion.TAREAS, t.getProyectoId());
+        registrarCambio(Bitacora.Operacion.ELIMINAR_TAREA, t.getId());
+    }
+
+    /**
+     * Cambia el estado de una tarea si la transición es válida. El observador del
+     * almacén registra el cambio en la bitácora.
+     *
+     * @param t      tarea a actualizar
+     * @param estado nuevo estado
+     * @return false si la transición no es válida (no se cambia)
+     */
+    private synchronized boolean cambiarEstadoTarea(Tarea t, String estado) {
+        if (!esTransicionValida(t.getEstado(), estado)) return false;
+        t.setEstado(estado);
+        return true;
     }
 
     /**
@@ -168,12 +855,14 @@ public class Sistema {
      * @return Usuario autenticado o null si falla
      */
     public Usuario authenticate(String username, String password) {
-        for (Usuario u : listaUsuarios) {
-            if (u.getUsername().equalsIgnoreCase(username) && u.getPassword().equals(password)) {
-                return u;
-            }
-        }
-        return null;
+        Usuario u;
+        synchronized (this) { u = usuariosPorNombre.get(claveUsuario(username)); }
+        return u != null && u.getPassword().equals(password) ? u : null;
+    }
+
+    /** Clave de un usuario en usuariosPorNombre: el nombre sin distinguir mayúsculas. */
+    private static String claveUsuario(String username) {
+        return IndiceTareas.normalizar(username);
     }
 
     // ========================================================================
@@ -185,9 +874,7 @@ public class Sistema {
      * como usuario o administrador.
      */
     public void menuPrincipal() {
-        cargarUsuarios();
-        cargarProyectos();
-        cargarTareas();
+        if (!datosCargados) cargarDatos();
 
         while (true) {
             System.out.println("\n--- LOGIN ---");
@@ -195,7 +882,7 @@ public class Sistema {
             String u = sc.nextLine().trim();
 
             if (u.equalsIgnoreCase("salir")) {
-                saveUsuarios(); saveProyectos(); saveTareas();
+                guardarCambios();
                 System.out.println("Saliendo...");
                 return;
             }
@@ -235,7 +922,8 @@ public class Sistema {
             System.out.println("3. Agregar o eliminar tarea");
             System.out.println("4. Asignar prioridades (Strategy)");
             System.out.println("5. Generar reporte");
-            System.out.println("6. Salir");
+            System.out.println("6. Buscar tareas por descripción");
+            System.out.println("7. Salir");
             System.out.print("Seleccione opción: ");
             
             String opcion = sc.nextLine().trim();
@@ -246,7 +934,8 @@ public class Sistema {
                 case "3": menuGestionTareas(); break;
                 case "4": menuPriorizacionStrategy(); break;
                 case "5": generarReporte(); break;
-                case "6": return;
+                case "6": menuBusquedaTareas(); break;
+                case "7": return;
                 default: System.out.println("Opción inválida");
             }
         }
@@ -258,7 +947,7 @@ public class Sistema {
     private void verProyectosYTareasCompletas() {
         System.out.println("\n=== LISTA COMPLETA DE PROYECTOS Y TAREAS ===");
         
-        for (Proyecto proyecto : listaProyectos) {
+        for (Proyecto proyecto : proyectosPorId.values()) {
             System.out.println("\nProyecto: " + proyecto.getNombre() + 
                              " (ID: " + proyecto.getId() + ")" +
                              " - Responsable: " + proyecto.getResponsable());
@@ -308,8 +997,11 @@ public class Sistema {
         System.out.print("Responsable del proyecto: ");
         String responsable = sc.nextLine().trim();
         
-        listaProyectos.add(new Proyecto(id, nombre, responsable));
-        System.out.println("Proyecto agregado exitosamente");
+        if (registrarProyecto(new Proyecto(id, nombre, responsable))) {
+            System.out.println("Proyecto agregado exitosamente");
+        } else {
+            System.out.println("Ya existe un proyecto con ese ID");
+        }
     }
 
     /** Elimina un proyecto por su ID junto con sus tareas asociadas. */
@@ -317,17 +1009,11 @@ public class Sistema {
         System.out.print("ID del proyecto a eliminar: ");
         String id = sc.nextLine().trim();
         
-        Proyecto proyectoAEliminar = null;
-        for (Proyecto proyecto : listaProyectos) {
-            if (proyecto.getId().equals(id)) {
-                proyectoAEliminar = proyecto;
-                break;
-            }
-        }
+        Proyecto proyectoAEliminar;
+        synchronized (this) { proyectoAEliminar = proyectosPorId.get(id); }
         
         if (proyectoAEliminar != null) {
-            listaProyectos.remove(proyectoAEliminar);
-            listaTareas.removeIf(tarea -> tarea.getProyectoId().equals(id));
+            quitarProyecto(proyectoAEliminar);
             System.out.println("Proyecto y tareas eliminados exitosamente");
         } else {
             System.out.println("Proyecto no encontrado");
@@ -363,13 +1049,8 @@ public class Sistema {
         System.out.print("ID del proyecto para la tarea: ");
         String proyectoId = sc.nextLine().trim();
         
-        boolean proyectoExiste = false;
-        for (Proyecto p : listaProyectos) {
-            if (p.getId().equals(proyectoId)) {
-                proyectoExiste = true;
-                break;
-            }
-        }
+        boolean proyectoExiste;
+        synchronized (this) { proyectoExiste = proyectosPorId.containsKey(proyectoId); }
         if (!proyectoExiste) {
             System.out.println("El proyecto no existe");
             return;
@@ -377,6 +1058,12 @@ public class Sistema {
         
         System.out.print("ID de la tarea: ");
         String id = sc.nextLine().trim();
+        boolean idRepetido;
+        synchronized (this) { idRepetido = listaTareas.buscarPorId(id) != null; }
+        if (idRepetido) {
+            System.out.println("Ya existe una tarea con ese ID");
+            return;
+        }
         System.out.println("Tipo (Bug/Feature/Documentación): ");
         String tipo = sc.nextLine().trim();
         System.out.print("Descripción: ");
@@ -386,12 +1073,11 @@ public class Sistema {
         System.out.print("Responsable: ");
         String responsable = sc.nextLine().trim();
 
-        for (Tarea t : listaTareas) {
-            if (t.getResponsable().equalsIgnoreCase(responsable) && 
-                t.getFecha().equals(LocalDate.now().toString())) {
-                System.out.println("El responsable ya tiene una tarea hoy.");
-                return;
-            }
+        boolean ocupado;
+        synchronized (this) { ocupado = listaTareas.tieneTareaEnDia(responsable, LocalDate.now()); }
+        if (ocupado) {
+            System.out.println("El responsable ya tiene una tarea hoy.");
+            return;
         }
 
         System.out.print("Complejidad (Baja/Media/Alta): ");
@@ -402,8 +1088,11 @@ public class Sistema {
             complejidad, LocalDate.now().toString(), proyectoId
         );
 
-        listaTareas.add(nuevaTarea);
-        System.out.println("Tarea agregada exitosamente");
+        if (registrarTarea(nuevaTarea)) {
+            System.out.println("Tarea agregada exitosamente");
+        } else {
+            System.out.println("Ya existe una tarea con ese ID");
+        }
     }
 
     /** Elimina una tarea por su ID. */
@@ -411,16 +1100,11 @@ public class Sistema {
         System.out.print("ID de la tarea a eliminar: ");
         String id = sc.nextLine().trim();
         
-        Tarea tareaAEliminar = null;
-        for (Tarea tarea : listaTareas) {
-            if (tarea.getId().equals(id)) {
-                tareaAEliminar = tarea;
-                break;
-            }
-        }
+        Tarea tareaAEliminar;
+        synchronized (this) { tareaAEliminar = listaTareas.buscarPorId(id); }
         
         if (tareaAEliminar != null) {
-            listaTareas.remove(tareaAEliminar);
+            quitarTarea(tareaAEliminar);
             System.out.println("Tarea eliminada exitosamente");
         } else {
             System.out.println("Tarea no encontrada");
@@ -431,15 +1115,25 @@ public class Sistema {
     // STRATEGY DE PRIORIZACIÓN
     // ========================================================================
 
+    /** Mayor impacto, luego mayor complejidad y luego la fecha más antigua. */
+    private static final PorCriteriosStrategy URGENCIA =
+            new PorCriteriosStrategy.Builder().porImpacto().porComplejidad().porFecha().build();
+
+    /** Puntaje por impacto y complejidad, para la prioridad que se muestra de cada tarea. */
+    private static final PorCriteriosStrategy IMPACTO_Y_COMPLEJIDAD =
+            new PorCriteriosStrategy.Builder().porImpacto().porComplejidad().build();
+
     /**
      * Muestra el menú para seleccionar una estrategia de priorización
-     * y aplica dicha estrategia a la lista de tareas.
+     * y muestra las tareas en el orden de dicha estrategia, sin reordenar la
+     * lista de tareas.
      */
     private void menuPriorizacionStrategy() {
         System.out.println("\n=== PRIORIZACIÓN DE TAREAS ===");
         System.out.println("1. Priorizar por fecha");
         System.out.println("2. Priorizar por impacto");
         System.out.println("3. Priorizar por complejidad");
+        System.out.println("4. Priorizar por impacto, complejidad y fecha");
         System.out.print("Seleccione estrategia: ");
         
         String opcion = sc.nextLine().trim();
@@ -450,16 +1144,31 @@ public class Sistema {
             case "1": estrategia = new PorFechaStrategy(); break;
             case "2": estrategia = new PorImpactoStrategy(); break;
             case "3": estrategia = new PorComplejidadStrategy(); break;
+            case "4": estrategia = URGENCIA; break;
             default:
                 System.out.println("Opción inválida");
                 return;
         }
-        
-        estrategia.priorizar(listaTareas);
-        System.out.println("Tareas priorizadas exitosamente");
+
+        System.out.print("Cantidad de tareas a mostrar (Enter para priorizar la lista completa): ");
+        String cantidad = sc.nextLine().trim();
+        List<Tarea> tareas;
+        if (cantidad.isEmpty()) {
+            synchronized (this) {
+                tareas = estrategia.priorizadas(listaTareas);
+            }
+            System.out.println("Tareas priorizadas exitosamente");
+        } else {
+            try {
+                tareas = obtenerTareasMasUrgentes(estrategia, Integer.parseInt(cantidad));
+            } catch (NumberFormatException e) {
+                System.out.println("Por favor ingrese un número válido");
+                return;
+            }
+        }
         
         System.out.println("\n=== TAREAS PRIORIZADAS ===");
-        for (Tarea tarea : listaTareas) {
+        for (Tarea tarea : tareas) {
             String prioridad = calcularPrioridad(tarea);
             System.out.println("- " + tarea.getEstado() + 
                              " | Tipo: " + tarea.getTipo() +
@@ -471,41 +1180,136 @@ public class Sistema {
         }
     }
 
+    /**
+     * Cambia la cantidad de tareas desde la que las estrategias de priorización
+     * ordenan en paralelo, en el pool común de fork-join. El valor inicial se toma
+     * de la propiedad <code>taller03.umbralOrdenParalelo</code> (200.000 si no está).
+     *
+     * @param tareas umbral; {@link Integer#MAX_VALUE} para ordenar siempre en un hilo
+     */
+    public void setUmbralOrdenParalelo(int tareas) { OrdenPorClave.setUmbralParalelo(tareas); }
+
+    /**
+     * Cambia la cantidad de tareas y proyectos desde la que el reporte se genera
+     * en paralelo, en el pool común de fork-join. El valor inicial se toma de la
+     * propiedad <code>taller03.umbralReporteParalelo</code> (200.000 si no está).
+     *
+     * @param lineas umbral; {@link Integer#MAX_VALUE} para generarlo siempre en un hilo
+     */
+    public void setUmbralReporteParalelo(int lineas) { ReporteProyectos.setUmbralParalelo(lineas); }
+
+    /**
+     * Obtiene las tareas más urgentes según una estrategia, sin cambiar el orden de
+     * la lista de tareas.
+     *
+     * @param estrategia estrategia de priorización
+     * @param k          cantidad máxima de tareas
+     * @return lista nueva con las tareas, en orden de prioridad
+     */
+    public synchronized List<Tarea> obtenerTareasMasUrgentes(PrioritizacionStrategy estrategia, int k) {
+        return estrategia.topK(listaTareas, k);
+    }
+
+    // ========================================================================
+    // BÚSQUEDA
+    // ========================================================================
+
+    /** Cantidad máxima de resultados que muestra la búsqueda del menú. */
+    private static final int RESULTADOS_BUSQUEDA = 50;
+
+    /**
+     * Busca tareas por palabras de su descripción y muestra las de más coincidencias.
+     */
+    private void menuBusquedaTareas() {
+        System.out.println("\n=== BÚSQUEDA DE TAREAS ===");
+        System.out.print("Palabras a buscar (termine una palabra con * para buscar por prefijo): ");
+        String texto = sc.nextLine().trim();
+        if (texto.isEmpty()) {
+            System.out.println("Debe ingresar al menos una palabra");
+            return;
+        }
+        System.out.print("¿Deben aparecer todas las palabras? (s/n): ");
+        boolean todas = !sc.nextLine().trim().equalsIgnoreCase("n");
+
+        List<Tarea> encontradas = buscarTareas(texto, todas, RESULTADOS_BUSQUEDA);
+        if (encontradas.isEmpty()) {
+            System.out.println("No se encontraron tareas");
+            return;
+        }
+        for (Tarea tarea : encontradas) {
+            System.out.println("- " + tarea.getId() +
+                             " | " + tarea.getDescripcion() +
+                             " | Proyecto: " + tarea.getProyectoId() +
+                             " | Estado: " + tarea.getEstado() +
+                             " | Responsable: " + tarea.getResponsable());
+        }
+        if (encontradas.size() == RESULTADOS_BUSQUEDA) {
+            System.out.println("(se muestran las primeras " + RESULTADOS_BUSQUEDA + " tareas)");
+        }
+    }
+
+    /**
+     * Busca tareas por palabras de su descripción, sin distinguir mayúsculas ni
+     * tildes. Una palabra terminada en '*' busca por prefijo.
+     *
+     * @param texto  palabras a buscar
+     * @param todas  true si deben aparecer todas las palabras, false si basta con una
+     * @param limite cantidad máxima de tareas
+     * @return tareas encontradas, primero las con más coincidencias
+     */
+    public synchronized List<Tarea> buscarTareas(String texto, boolean todas, int limite) {
+        return listaTareas.buscarEnDescripcion(texto, todas, limite);
+    }
+
     // ========================================================================
     // REPORTE
     // ========================================================================
 
+    /**
+     * Escribe los conteos de tareas por estado, tipo y complejidad. Se calculan con
+     * los conjuntos de filas por valor, sin recorrer las tareas.
+     *
+     * @param pw destino del reporte
+     */
+    private synchronized void escribirResumen(PrintWriter pw) {
+        pw.println("=== RESUMEN ===");
+        pw.println("Total de tareas: " + listaTareas.size());
+        pw.println("Por estado: " + formatearConteos(listaTareas.conteosPorEstado()));
+        pw.println("Por tipo: " + formatearConteos(listaTareas.conteosPorTipo()));
+        pw.println("Por complejidad: " + formatearConteos(listaTareas.conteosPorComplejidad()));
+        pw.println("Bugs pendientes de complejidad Alta: "
+                + contarTareas(new ConsultaTareas().conTipo("Bug").conEstado("Pendiente").conComplejidad("Alta")));
+    }
+
+    private static String formatearConteos(Map<String, Integer> conteos) {
+        if (conteos.isEmpty()) return "-";
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Integer> e : conteos.entrySet()) {
+            if (sb.length() > 0) sb.append(" | ");
+            sb.append(e.getKey()).append(": ").append(e.getValue());
+        }
+        return sb.toString();
+    }
+
     /**
      * Genera un archivo reporte.txt con información detallada
-     * de todos los proyectos y sus tareas.
+     * de todos los proyectos y sus tareas, mediante {@link ReporteProyectos}.
+     * Si el reporte anterior sigue intacto, solo se regeneran las secciones de
+     * los proyectos que cambiaron desde entonces, según el registro de cambios.
      */
     private void generarReporte() {
-        try (PrintWriter pw = new PrintWriter(new FileWriter("reporte.txt"))) {
-            pw.println("=== REPORTE DE PROYECTOS ===");
-            pw.println("Fecha: " + LocalDate.now());
-            pw.println();
-            
-            for (Proyecto proyecto : listaProyectos) {
-                pw.println("Proyecto: " + proyecto.getNombre());
-                pw.println("ID: " + proyecto.getId());
-                pw.println("Responsable: " + proyecto.getResponsable());
-                
-                List<Tarea> tareasProyecto = obtenerTareasPorProyecto(proyecto.getId());
-                pw.println("Total de tareas: " + tareasProyecto.size());
-                
-                if (!tareasProyecto.isEmpty()) {
-                    pw.println("Tareas:");
-                    for (Tarea tarea : tareasProyecto) {
-                        pw.println("  - " + tarea.getDescripcion() +
-                                 " | Tipo: " + tarea.getTipo() +
-                                 " | Estado: " + tarea.getEstado() +
-                                 " | Responsable: " + tarea.getResponsable() +
-                                 " | Complejidad: " + tarea.getComplejidad());
-                    }
+        File destino = new File("reporte.txt");
+        try {
+            synchronized (this) {
+                long version = cambios.versionActual();
+                if (indiceReporte != null && indiceReporte.vigente(destino)) {
+                    indiceReporte = ReporteProyectos.actualizar(indiceReporte, proyectosPorId.values(), listaTareas,
+                            this::escribirResumen, cambios.proyectosModificadosDesde(versionReporte));
+                } else {
+                    indiceReporte = ReporteProyectos.escribir(destino, proyectosPorId.values(), listaTareas, this::escribirResumen);
                 }
-                pw.println();
+                versionReporte = version;
             }
-            
             System.out.println("Reporte generado exitosamente en reporte.txt");
         } catch (IOException e) {
             System.out.println("Error al generar reporte");
@@ -549,7 +1353,7 @@ public class Sistema {
     /** Muestra los proyectos disponibles para el usuario. */
     private void verProyectosDisponibles() {
         System.out.println("\n=== PROYECTOS DISPONIBLES ===");
-        for (Proyecto proyecto : listaProyectos) {
+        for (Proyecto proyecto : proyectosPorId.values()) {
             List<Tarea> tareasProyecto = obtenerTareasPorProyecto(proyecto.getId());
             System.out.println("- " + proyecto.getNombre() + 
                              " (ID: " + proyecto.getId() + ")" +
@@ -610,8 +1414,7 @@ public class Sistema {
                 System.out.print("Nuevo estado: ");
                 String nuevoEstado = sc.nextLine().trim();
                 
-                if (esTransicionValida(tareaSeleccionada.getEstado(), nuevoEstado)) {
-                    tareaSeleccionada.setEstado(nuevoEstado);
+                if (cambiarEstadoTarea(tareaSeleccionada, nuevoEstado)) {
                     System.out.println("Estado actualizado exitosamente");
                 } else {
                     System.out.println("Transición de estado no válida");
@@ -656,13 +1459,61 @@ public class Sistema {
      * @return lista de tareas del proyecto
      */
     private List<Tarea> obtenerTareasPorProyecto(String proyectoId) {
-        List<Tarea> resultado = new ArrayList<>();
-        for (Tarea tarea : listaTareas) {
-            if (tarea.getProyectoId().equals(proyectoId)) {
-                resultado.add(tarea);
-            }
-        }
-        return resultado;
+        return consultar(new ConsultaTareas().deProyecto(proyectoId));
+    }
+
+    /**
+     * Ejecuta una consulta sobre las tareas del sistema.
+     *
+     * @param consulta filtros, orden y límite
+     * @return tareas que cumplen la consulta
+     */
+    public synchronized List<Tarea> consultar(ConsultaTareas consulta) {
+        return listaTareas.consultar(consulta);
+    }
+
+    /**
+     * Cuenta las tareas que cumplen una consulta, sin crearlas.
+     *
+     * @param consulta filtros
+     * @return cantidad de tareas
+     */
+    public synchronized int contarTareas(ConsultaTareas consulta) {
+        return listaTareas.contar(consulta);
+    }
+
+    /**
+     * Ejecuta una consulta y aplica una proyección a cada tarea del resultado.
+     *
+     * @param consulta   filtros, orden y límite
+     * @param proyeccion función que se aplica a cada tarea
+     * @return resultados proyectados
+     */
+    public synchronized <R> List<R> consultar(ConsultaTareas consulta, Function<? super Tarea, ? extends R> proyeccion) {
+        return consulta.proyectar(listaTareas, proyeccion);
+    }
+
+    /**
+     * Obtiene las tareas con fecha entre dos días (inclusive), ordenadas por fecha.
+     *
+     * @param desde primer día
+     * @param hasta último día
+     * @return tareas del rango
+     */
+    public synchronized List<Tarea> obtenerTareasEntre(LocalDate desde, LocalDate hasta) {
+        return listaTareas.filtrarPorFecha(desde, hasta);
+    }
+
+    /**
+     * Obtiene las tareas de los últimos días, incluido el actual (por ejemplo 7 o 30),
+     * ordenadas por fecha.
+     *
+     * @param dias cantidad de días
+     * @return tareas del período
+     */
+    public List<Tarea> obtenerTareasUltimosDias(int dias) {
+        LocalDate hoy = LocalDate.now();
+        return obtenerTareasEntre(hoy.minusDays(dias - 1L), hoy);
     }
 
     /**
@@ -672,13 +1523,7 @@ public class Sistema {
      * @return lista de tareas asignadas
      */
     private List<Tarea> obtenerTareasPorUsuario(String username) {
-        List<Tarea> resultado = new ArrayList<>();
-        for (Tarea tarea : listaTareas) {
-            if (tarea.getResponsable().equalsIgnoreCase(username)) {
-                resultado.add(tarea);
-            }
-        }
-        return resultado;
+        return consultar(new ConsultaTareas().deResponsable(username));
     }
 
     /**
@@ -688,12 +1533,8 @@ public class Sistema {
      * @return nombre del proyecto o "Desconocido" si no existe
      */
     private String obtenerNombreProyecto(String proyectoId) {
-        for (Proyecto proyecto : listaProyectos) {
-            if (proyecto.getId().equals(proyectoId)) {
-                return proyecto.getNombre();
-            }
-        }
-        return "Desconocido";
+        Proyecto proyecto = proyectosPorId.get(proyectoId);
+        return proyecto != null ? proyecto.getNombre() : "Desconocido";
     }
 
     /**
@@ -714,36 +1555,16 @@ public class Sistema {
     }
 
     /**
-     * Calcula una prioridad derivada basada en el tipo y la complejidad.
+     * Calcula una prioridad derivada basada en el tipo y la complejidad, a partir
+     * del mismo puntaje que usa la estrategia por criterios.
      * 
      * @param t tarea a evaluar
      * @return string con la categoría de prioridad (Alta/Media/Baja)
      */
     private String calcularPrioridad(Tarea t) {
-        int impacto = 0;
-        String tipo = t.getTipo();
-        if (tipo != null) {
-            switch (tipo.trim().toLowerCase()) {
-                case "bug": impacto = 3; break;
-                case "feature": impacto = 2; break;
-                case "documentacion":
-                case "documentación": impacto = 1; break;
-                default: impacto = 1; break;
-            }
-        }
-
-        int comp = 0;
-        String c = t.getComplejidad();
-        if (c != null) {
-            switch (c.trim().toLowerCase()) {
-                case "alta": comp = 3; break;
-                case "media": comp = 2; break;
-                case "baja": comp = 1; break;
-                default: comp = 1; break;
-            }
-        }
-
-        int score = Math.max(impacto, comp);
+        long puntaje = IMPACTO_Y_COMPLEJIDAD.puntaje(t);
+        int score = Math.max(IMPACTO_Y_COMPLEJIDAD.nivel(puntaje, PorCriteriosStrategy.Criterio.IMPACTO),
+                             IMPACTO_Y_COMPLEJIDAD.nivel(puntaje, PorCriteriosStrategy.Criterio.COMPLEJIDAD));
         if (score >= 3) return "Alta";
         if (score == 2) return "Media";
         return "Baja";
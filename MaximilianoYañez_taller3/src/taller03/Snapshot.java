@@ -0,0 +1,250 @@
+package taller03;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Copia binaria de un archivo de datos del sistema, usada para acelerar el arranque.
+ * <p>
+ * Junto a cada archivo de texto (por ejemplo <code>tareas.txt</code>) se guarda un
+ * archivo <code>tareas.snap</code> con los mismos registros en un formato compacto:
+ * un diccionario con cada texto distinto una sola vez (largo + bytes UTF-8) y luego
+ * los registros como índices dentro de ese diccionario. Los enteros se escriben en
+ * formato de largo variable.
+ * </p>
+ *
+ * El snapshot solo se usa si:
+ * <ul>
+ *     <li>la fecha de modificación y el tamaño del archivo de texto coinciden con los
+ *         registrados al momento de escribirlo, y</li>
+ *     <li>el CRC32 de su contenido coincide con el almacenado.</li>
+ * </ul>
+ * En cualquier otro caso {@link #cargar} retorna <code>false</code> y el llamador
+ * debe volver a leer el archivo de texto. El archivo se escribe mediante
+ * {@link EscritorAtomico}, por lo que nunca queda a medio escribir.
+ */
+public final class Snapshot {
+
+    /** Identificador de formato escrito al inicio del archivo ("TS03"). */
+    private static final int MAGICO = 0x54533033;
+
+    /** Versión del formato binario. */
+    private static final int VERSION = 1;
+
+    /** Tamaño de la cabecera: mágico, versión, fecha y tamaño del texto, largo del contenido y CRC. */
+    private static final int CABECERA = 4 + 4 + 8 + 8 + 4 + 8;
+
+    /**
+     * Obtiene el valor de cada campo de un objeto al escribir el snapshot.
+     *
+     * @param <T> tipo de los objetos guardados.
+     */
+    public interface Escritor<T> {
+
+        /**
+         * @param obj objeto a guardar.
+         * @param i   índice del campo, en el mismo orden que en el archivo de texto.
+         * @return valor del campo.
+         */
+        String campo(T obj, int i);
+    }
+
+    /**
+     * Reconstruye un objeto a partir de sus campos al leer el snapshot.
+     *
+     * @param <T> tipo de los objetos leídos.
+     */
+    public interface Lector<T> {
+
+        /**
+         * @param campos valores del registro; el arreglo se reutiliza entre registros.
+         * @return objeto creado, o <code>null</code> para descartarlo.
+         */
+        T crear(String[] campos);
+    }
+
+    private Snapshot() {}
+
+    /**
+     * Retorna el archivo de snapshot asociado a un archivo de texto.
+     *
+     * @param texto archivo de texto, por ejemplo <code>tareas.txt</code>.
+     * @return archivo <code>tareas.snap</code> en la misma carpeta.
+     */
+    public static File archivoDe(File texto) {
+        String nombre = texto.getName();
+        int punto = nombre.lastIndexOf('.');
+        String base = punto > 0 ? nombre.substring(0, punto) : nombre;
+        return new File(texto.getAbsoluteFile().getParentFile(), base + ".snap");
+    }
+
+    /**
+     * Escribe el snapshot de un archivo de texto recién guardado.
+     *
+     * @param texto     archivo de texto que contiene los mismos datos.
+     * @param datos     objetos a guardar.
+     * @param numCampos cantidad de campos por registro.
+     * @param escritor  acceso a los campos de cada objeto.
+     * @param <T>       tipo de los objetos.
+     * @throws IOException si no se puede escribir el archivo.
+     */
+    public static <T> void guardar(File texto, Collection<T> datos, int numCampos,
+                                   Escritor<T> escritor) throws IOException {
+        Map<String, Integer> indices = new HashMap<>();
+        Buffer diccionario = new Buffer();
+        Buffer registros = new Buffer();
+
+        registros.escribirVarint(datos.size());
+        for (T obj : datos) {
+            for (int i = 0; i < numCampos; i++) {
+                String valor = escritor.campo(obj, i);
+                Integer indice = indices.get(valor);
+                if (indice == null) {
+                    indice = indices.size();
+                    indices.put(valor, indice);
+                    byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+                    diccionario.escribirVarint(bytes.length);
+                    diccionario.write(bytes, 0, bytes.length);
+                }
+                registros.escribirVarint(indice);
+            }
+        }
+
+        Buffer contenido = new Buffer();
+        contenido.escribirVarint(numCampos);
+        contenido.escribirVarint(indices.size());
+        contenido.write(diccionario.datos(), 0, diccionario.size());
+        contenido.write(registros.datos(), 0, registros.size());
+
+        CRC32 crc = new CRC32();
+        crc.update(contenido.datos(), 0, contenido.size());
+
+        ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+        cabecera.putInt(MAGICO).putInt(VERSION)
+                .putLong(texto.lastModified()).putLong(texto.length())
+                .putInt(contenido.size()).putLong(crc.getValue());
+
+        EscritorAtomico.escribir(archivoDe(texto), salida -> {
+            salida.write(cabecera.array());
+            salida.write(contenido.datos(), 0, contenido.size());
+        });
+    }
+
+    /**
+     * Carga los registros desde el snapshot si este sigue vigente.
+     *
+     * @param texto     archivo de texto de referencia.
+     * @param numCampos cantidad de campos por registro esperada.
+     * @param lector    constructor de los objetos.
+     * @param destino   lista donde se agregan los objetos leídos.
+     * @param <T>       tipo de los objetos.
+     * @return <code>true</code> si se cargó desde el snapshot; <code>false</code> si no existe,
+     *         está desactualizado o dañado, en cuyo caso <code>destino</code> no se modifica.
+     * @throws IOException si ocurre un error de lectura.
+     */
+    public static <T> boolean cargar(File texto, int numCampos, Lector<T> lector,
+                                     List<T> destino) throws IOException {
+        List<T> leidos = new ArrayList<>();
+        if (!cargar(texto, numCampos, campos -> {
+            T obj = lector.crear(campos);
+            if (obj != null) leidos.add(obj);
+        })) {
+            return false;
+        }
+        destino.addAll(leidos);
+        return true;
+    }
+
+    /**
+     * Recorre los registros del snapshot si este sigue vigente. El snapshot se
+     * valida completo antes de entregar el primer registro, por lo que el receptor
+     * no recibe nada cuando el resultado es <code>false</code>.
+     *
+     * @param texto     archivo de texto de referencia.
+     * @param numCampos cantidad de campos por registro esperada.
+     * @param receptor  recibe los campos de cada registro; el arreglo se reutiliza entre registros.
+     * @return <code>true</code> si se leyó desde el snapshot.
+     * @throws IOException si ocurre un error de lectura.
+     */
+    public static boolean cargar(File texto, int numCampos, Consumer<String[]> receptor) throws IOException {
+        File archivo = archivoDe(texto);
+        if (!archivo.exists()) return false;
+
+        ByteBuffer buf;
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano < CABECERA || tamano > Integer.MAX_VALUE) return false;
+            buf = ByteBuffer.allocate((int) tamano);
+            while (buf.hasRemaining() && canal.read(buf) > 0) { }
+            buf.flip();
+        }
+
+        if (buf.remaining() < CABECERA || buf.getInt() != MAGICO || buf.getInt() != VERSION) return false;
+        if (buf.getLong() != texto.lastModified() || buf.getLong() != texto.length()) return false;
+        int largo = buf.getInt();
+        long crcEsperado = buf.getLong();
+        if (largo != buf.remaining()) return false;
+
+        byte[] bytes = buf.array();
+        int inicio = buf.position();
+        CRC32 crc = new CRC32();
+        crc.update(bytes, inicio, largo);
+        if (crc.getValue() != crcEsperado) return false;
+
+        if (leerVarint(buf) != numCampos) return false;
+        String[] diccionario = new String[leerVarint(buf)];
+        for (int i = 0; i < diccionario.length; i++) {
+            int n = leerVarint(buf);
+            diccionario[i] = new String(bytes, buf.position(), n, StandardCharsets.UTF_8);
+            buf.position(buf.position() + n);
+        }
+
+        int total = leerVarint(buf);
+        String[] campos = new String[numCampos];
+        for (int r = 0; r < total; r++) {
+            for (int i = 0; i < numCampos; i++) campos[i] = diccionario[leerVarint(buf)];
+            receptor.accept(campos);
+        }
+        return true;
+    }
+
+    private static int leerVarint(ByteBuffer buf) {
+        int valor = 0;
+        int desplazamiento = 0;
+        byte b;
+        do {
+            b = buf.get();
+            valor |= (b & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        } while (b < 0);
+        return valor;
+    }
+
+    /** Buffer en memoria con escritura de enteros de largo variable. */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        Buffer() { super(1024); }
+
+        void escribirVarint(int valor) {
+            while ((valor & ~0x7F) != 0) {
+                write((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            write(valor);
+        }
+
+        byte[] datos() { return buf; }
+    }
+}
@@ -6,32 +6,22 @@ package taller03;
  * Cada tarea posee información común como un identificador, tipo, descripción,
  * estado, responsable asignado, complejidad, fecha de creación y el proyecto al cual pertenece.
  * Además, utiliza el patrón Visitor para permitir operaciones externas según el tipo de tarea.
+ * <p>
+ * Los datos no se guardan en el objeto sino en una fila de un {@link TareaStore};
+ * la tarea es una vista sobre esa fila, que no cambia mientras la tarea exista. Una tarea creada
+ * con el constructor público, o eliminada de su almacén, guarda sus datos en una
+ * {@link FilaSuelta} hasta que se agrega a un almacén. Los getters entregan los textos originales.
  */
 public abstract class Tarea {
 
-    /** Identificador único de la tarea. */
-    protected String id;
-
-    /** Tipo de tarea (Bug, Feature, Documentación, etc.). */
-    protected String tipo;
-
-    /** Descripción detallada de la tarea. */
-    protected String descripcion;
-
-    /** Estado actual de la tarea (Ej: Pendiente, En progreso, Finalizada). */
-    protected String estado;
-
-    /** Nombre del responsable asignado a la tarea. */
-    protected String responsable;
-
-    /** Nivel de complejidad de la tarea. */
-    protected String complejidad;
+    /** Almacén de la tarea, o null si no pertenece a ninguno. */
+    private TareaStore store;
 
-    /** Fecha de creación o asignación de la tarea en formato yyyy-MM-dd. */
-    protected String fecha;
+    /** Filas que contienen los datos de la tarea: las de {@link #store} o una {@link FilaSuelta}. */
+    private FilasTareas filas;
 
-    /** ID del proyecto al cual pertenece esta tarea. */
-    protected String proyectoId;
+    /** Fila de la tarea dentro de {@link #filas}. */
+    private int fila;
 
     /**
      * Constructor para inicializar una tarea con todos sus atributos.
@@ -48,53 +38,88 @@ public abstract class Tarea {
     public Tarea(String id, String tipo, String descripcion, String estado,
                  String responsable, String complejidad, String fecha, String proyectoId) {
 
-        this.id = id;
-        this.tipo = tipo;
-        this.descripcion = descripcion;
-        this.estado = estado;
-        this.responsable = responsable;
-        this.complejidad = complejidad;
-        this.fecha = fecha;
-        this.proyectoId = proyectoId;
+        this.filas = new FilaSuelta(id, tipo, descripcion, estado, responsable, complejidad, fecha, proyectoId);
+    }
+
+    /**
+     * Crea la vista de una fila existente de un almacén.
+     *
+     * @param store almacén que contiene los datos.
+     * @param fila  fila de la tarea.
+     */
+    protected Tarea(TareaStore store, int fila) {
+        this.store = store;
+        this.filas = store.filasDeVistas();
+        this.fila = fila;
+        store.vincular(fila, this);
     }
 
     /** @return ID de la tarea. */
-    public String getId() { return id; }
+    public String getId() { return filas.id(fila); }
 
     /** @return Tipo de tarea. */
-    public String getTipo() { return tipo; }
+    public String getTipo() { return filas.tipo(fila); }
 
     /** @return Descripción de la tarea. */
-    public String getDescripcion() { return descripcion; }
+    public String getDescripcion() { return filas.descripcion(fila); }
 
     /** @return Estado actual de la tarea. */
-    public String getEstado() { return estado; }
+    public String getEstado() { return filas.estado(fila); }
 
     /**
-     * Establece un nuevo estado para la tarea.
+     * Establece un nuevo estado para la tarea y notifica al observador de su
+     * almacén, si existe.
      *
      * @param estado Nuevo estado.
      */
-    public void setEstado(String estado) { this.estado = estado; }
+    public void setEstado(String estado) {
+        if (store != null) store.setEstado(fila, estado);
+        else filas.setEstado(fila, estado);
+    }
 
     /** @return Nombre del responsable asignado. */
-    public String getResponsable() { return responsable; }
+    public String getResponsable() { return filas.responsable(fila); }
 
     /**
      * Cambia el responsable asignado a esta tarea.
      *
      * @param responsable Nuevo responsable.
      */
-    public void setResponsable(String responsable) { this.responsable = responsable; }
+    public void setResponsable(String responsable) {
+        if (store != null) store.setResponsable(fila, responsable);
+        else filas.setResponsable(fila, responsable);
+    }
 
     /** @return Nivel de complejidad de la tarea. */
-    public String getComplejidad() { return complejidad; }
+    public String getComplejidad() { return filas.complejidad(fila); }
 
     /** @return Fecha asociada a la tarea. */
-    public String getFecha() { return fecha; }
+    public String getFecha() { return filas.fecha(fila); }
 
     /** @return ID del proyecto al que pertenece la tarea. */
-    public String getProyectoId() { return proyectoId; }
+    public String getProyectoId() { return filas.proyectoId(fila); }
+
+    /** @return almacén de la tarea, o null si no pertenece a ninguno. */
+    TareaStore getStore() { return store; }
+
+    /** @return filas que contienen los datos de la tarea. */
+    FilasTareas getFilas() { return filas; }
+
+    /** @return fila de la tarea dentro de {@link #getFilas()}. */
+    int getFila() { return fila; }
+
+    /**
+     * Apunta la vista a otra fila, cuando el almacén mueve o copia sus datos.
+     *
+     * @param store almacén de la tarea, o null si queda suelta.
+     * @param filas filas que contienen los datos.
+     * @param fila  fila de la tarea.
+     */
+    void mover(TareaStore store, FilasTareas filas, int fila) {
+        this.store = store;
+        this.filas = filas;
+        this.fila = fila;
+    }
 
     /**
      * Método abstracto para aplicar el patrón Visitor.
@@ -104,4 +129,4 @@ public abstract class Tarea {
      * @param v Implementación del visitante que ejecutará operaciones específicas según el tipo de tarea.
      */
     public abstract void accept(Visitor v);
-}
\ No newline at end of file
+}
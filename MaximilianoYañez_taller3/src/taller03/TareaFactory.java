@@ -35,10 +35,7 @@ public class TareaFactory {
     public static Tarea createTarea(String id, String tipo, String descripcion, String estado,
                                     String responsable, String complejidad, String fecha, String proyectoId) {
 
-        // Normalizar tipo para evitar errores por mayúsculas, espacios o tildes faltantes
-        String t = tipo == null ? "" : tipo.trim().toLowerCase();
-
-        switch (t) {
+        switch (normalizar(tipo)) {
             case "bug":
                 return new Bug(id, tipo, descripcion, estado, responsable, complejidad, fecha, proyectoId);
 
@@ -55,4 +52,33 @@ public class TareaFactory {
                 return new Feature(id, tipo, descripcion, estado, responsable, complejidad, fecha, proyectoId);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Crea la vista de una fila de un {@link TareaStore}, usando la subclase que
+     * corresponde al tipo guardado en esa fila, con las mismas reglas que
+     * {@link #createTarea}.
+     *
+     * @param store almacén que contiene los datos.
+     * @param fila  fila de la tarea.
+     * @return vista de la fila.
+     */
+    static Tarea crearVista(TareaStore store, int fila) {
+        switch (normalizar(store.tipo(fila))) {
+            case "bug":
+                return new Bug(store, fila);
+
+            case "documentación":
+            case "documentacion":
+            case "document":
+                return new Documentacion(store, fila);
+
+            default:
+                return new Feature(store, fila);
+        }
+    }
+
+    /** Normaliza el tipo para evitar errores por mayúsculas, espacios o tildes faltantes. */
+    private static String normalizar(String tipo) {
+        return tipo == null ? "" : tipo.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,951 @@
+package taller03;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Almacén de tareas organizado por filas de atributos codificados.
+ * <p>
+ * Los datos se guardan en un {@link FilasTareas}: por defecto en arreglos del heap,
+ * uno por atributo ({@link FilasEnHeap}), o fuera del heap, en memoria directa o en
+ * archivos mapeados ({@link FilasFueraDeHeap}). Cada tarea ocupa una fila que no
+ * cambia mientras la tarea exista; el orden de las tareas se guarda aparte como una
+ * secuencia de filas. Los recorridos y filtros trabajan directamente sobre las
+ * filas sin crear objetos.
+ * </p>
+ *
+ * Las tareas ({@link Bug}, {@link Feature}, {@link Documentacion}) son vistas sobre una
+ * fila del almacén: se crean la primera vez que se piden con {@link #get(int)} y se
+ * reutilizan mientras sigan en uso, por lo que cada fila tiene una única vista. Las
+ * vistas se guardan con referencias débiles, para que la cantidad de objetos dependa
+ * solo de las tareas en uso y no de las filas recorridas alguna vez. Una tarea creada con su
+ * constructor guarda sus datos en una {@link FilaSuelta}; al agregarla a un almacén sus
+ * datos se copian y la tarea pasa a apuntar a la nueva fila. Al eliminar una fila
+ * su vista conserva una copia de los datos en una {@link FilaSuelta}.
+ *
+ * <p>El almacén implementa {@link List}, por lo que puede usarse donde antes se usaba
+ * una lista de tareas. No admite la misma tarea dos veces ni {@link #set}.</p>
+ */
+public final class TareaStore extends AbstractList<Tarea> implements RandomAccess {
+
+    private final FilasTareas filas;
+
+    /** Vistas por fila, con referencias débiles. */
+    private final Map<Integer, VistaDebil> vistasDebiles = new HashMap<>();
+    private final ReferenceQueue<Tarea> recolectadas = new ReferenceQueue<>();
+
+    /** Observador notificado cuando cambia el estado de una tarea del almacén (puede ser null). */
+    private ObservadorTarea observador;
+
+    /** Índices por proyecto y por responsable; se crean en la primera consulta y luego se mantienen. */
+    private volatile IndiceTareas indice;
+
+    /** Índice por ID; se crea en la primera búsqueda o inserción con {@link #add} y luego se mantiene. */
+    private volatile IndiceIds porId;
+
+    /** Índice de palabras de las descripciones; se crea en la primera búsqueda y luego se mantiene. */
+    private volatile IndiceTexto texto;
+
+    /** Conjuntos de filas por estado, tipo y complejidad; se crean en la primera consulta que los usa. */
+    private volatile IndiceValores valores;
+
+    /**
+     * Vistas de prioridad por comparador de estrategia; cada una se crea en la
+     * primera consulta con ese comparador y se descarta al reordenar.
+     */
+    private final Map<Comparator<String>, VistaPrioridad> prioridades = new HashMap<>();
+
+    /** Posición de cada fila, para devolver las consultas en orden; se recalcula tras reordenar. */
+    private volatile int[] posiciones;
+
+    /**
+     * Filas eliminadas con {@link #remove(Object)} que siguen ocupando su lugar en el
+     * orden. Ya no están en los índices; se quitan del orden y se liberan todas juntas
+     * en {@link #compactar()}, antes del siguiente acceso por posición.
+     */
+    private final BitSet borradas = new BitSet();
+    private volatile int pendientes;
+
+    /** Crea un almacén vacío. */
+    public TareaStore() {
+        this(16);
+    }
+
+    /**
+     * Crea un almacén vacío con espacio para la cantidad de tareas indicada.
+     *
+     * @param capacidad cantidad inicial de filas.
+     */
+    public TareaStore(int capacidad) {
+        this(new FilasEnHeap(capacidad));
+    }
+
+    private TareaStore(FilasTareas filas) {
+        this.filas = filas;
+    }
+
+    /**
+     * Crea un almacén vacío para cargar un tramo de una carga paralela que luego
+     * se incorpora a este con {@link #agregarTodas}. En el heap comparte los
+     * diccionarios de este almacén, para copiar las filas sin volver a codificarlas.
+     *
+     * @return almacén vacío.
+     */
+    TareaStore tramo() {
+        return new TareaStore(filas.tramo());
+    }
+
+    /**
+     * Crea un almacén vacío con las filas en memoria directa, fuera del heap.
+     *
+     * @return almacén fuera del heap.
+     */
+    public static TareaStore fueraDeHeap() {
+        return new TareaStore(FilasFueraDeHeap.enMemoria());
+    }
+
+    /**
+     * Crea un almacén con las filas en archivos mapeados en memoria. Si los
+     * archivos se cerraron correctamente y coinciden con el archivo de referencia,
+     * se conserva su contenido (ver {@link #datosRestaurados()}).
+     *
+     * @param base       ruta base de los archivos del almacén.
+     * @param referencia archivo de texto con los mismos datos.
+     * @return almacén en archivo.
+     * @throws IOException si no se pueden abrir los archivos.
+     */
+    public static TareaStore enArchivo(File base, File referencia) throws IOException {
+        return new TareaStore(FilasFueraDeHeap.enArchivo(base, referencia));
+    }
+
+    /**
+     * Registra el observador que será notificado de los cambios de estado de las
+     * tareas del almacén.
+     *
+     * @param observador observador, o null para no notificar a nadie.
+     */
+    public void setObservador(ObservadorTarea observador) { this.observador = observador; }
+
+    /**
+     * Indica, una sola vez, si el contenido se recuperó del archivo del almacén y
+     * no hace falta volver a cargarlo.
+     *
+     * @return true si el contenido restaurado es válido.
+     */
+    public boolean datosRestaurados() {
+        return filas.tomarRestaurado();
+    }
+
+    /**
+     * Termina el uso del almacén. Un almacén en archivo queda marcado como
+     * consistente con el archivo de referencia, para restaurarse al abrirlo.
+     *
+     * @param referencia archivo de texto con los mismos datos.
+     * @throws IOException si falla la escritura.
+     */
+    public void cerrar(File referencia) throws IOException {
+        compactar();
+        filas.cerrar(referencia);
+    }
+
+    // ========================================================================
+    //  FILAS
+    // ========================================================================
+
+    /**
+     * Agrega una fila al final del almacén sin crear su vista.
+     *
+     * @return fila agregada.
+     */
+    public int agregar(String id, String tipo, String descripcion, String estado,
+                       String responsable, String complejidad, String fecha, String proyectoId) {
+        int f = filas.nueva();
+        filas.escribir(f, id, tipo, descripcion, estado, responsable, complejidad, fecha, proyectoId);
+        filas.insertar(filas.tamano(), f);
+        if (indice != null) indice.agregar(f);
+        if (texto != null) texto.agregar(f);
+        if (valores != null) valores.agregar(f);
+        // Un ID repetido (al reproducir un reemplazo) invalida el índice por ID hasta la próxima búsqueda.
+        if (porId != null && !porId.agregar(f)) porId = null;
+        agregarAPrioridades(f);
+        int[] pos = posiciones;
+        if (pos != null && f < pos.length) pos[f] = filas.tamano() - 1;
+        else posiciones = null;
+        modCount++;
+        return f;
+    }
+
+    /** @return fila de la tarea que está en la posición indicada. */
+    int filaEn(int posicion) {
+        compactar();
+        return filas.fila(posicion);
+    }
+
+    String id(int f) { return filas.id(f); }
+
+    String tipo(int f) { return filas.tipo(f); }
+
+    String descripcion(int f) { return filas.descripcion(f); }
+
+    String estado(int f) { return filas.estado(f); }
+
+    String responsable(int f) { return filas.responsable(f); }
+
+    String complejidad(int f) { return filas.complejidad(f); }
+
+    String proyectoId(int f) { return filas.proyectoId(f); }
+
+    String fecha(int f) { return filas.fecha(f); }
+
+    /**
+     * Cambia el estado de una fila y notifica al observador del almacén.
+     *
+     * @param f      fila.
+     * @param estado nuevo estado.
+     */
+    void setEstado(int f, String estado) {
+        String anterior = filas.estado(f);
+        asignarEstado(f, estado);
+        if (observador != null) observador.estadoCambiado(vista(f), anterior);
+    }
+
+    /**
+     * Cambia el estado de una fila sin notificar al observador. Se usa al
+     * reproducir cambios ya registrados.
+     */
+    void asignarEstado(int f, String estado) {
+        IndiceValores v = valores;
+        if (v != null) v.quitar(IndiceValores.Atributo.ESTADO, f);
+        filas.setEstado(f, estado);
+        if (v != null) v.agregar(IndiceValores.Atributo.ESTADO, f);
+    }
+
+    void setResponsable(int f, String responsable) {
+        IndiceTareas i = indice;
+        if (i != null) i.quitarResponsable(f);
+        filas.setResponsable(f, responsable);
+        if (i != null) i.agregarResponsable(f);
+    }
+
+    /**
+     * Asocia una vista a su fila. Lo invoca el constructor de {@link Tarea}.
+     */
+    void vincular(int f, Tarea vista) {
+        purgarVistas();
+        vistasDebiles.put(f, new VistaDebil(vista, f, recolectadas));
+    }
+
+    // ========================================================================
+    //  CONSULTAS
+    // ========================================================================
+
+    /**
+     * Obtiene las tareas de un proyecto mediante el índice por proyecto, en tiempo
+     * proporcional a la cantidad de tareas encontradas.
+     *
+     * @param proyectoId ID del proyecto.
+     * @return tareas del proyecto, en el orden del almacén.
+     */
+    public List<Tarea> filtrarPorProyecto(String proyectoId) {
+        return enOrden(indice().filasDeProyecto(proyectoId));
+    }
+
+    /**
+     * Obtiene las tareas de un responsable, sin distinguir mayúsculas de minúsculas,
+     * mediante el índice por responsable.
+     *
+     * @param responsable nombre del responsable.
+     * @return tareas asignadas, en el orden del almacén.
+     */
+    public List<Tarea> filtrarPorResponsable(String responsable) {
+        return enOrden(indice().filasDeResponsable(responsable));
+    }
+
+    /**
+     * Obtiene las tareas con fecha entre dos días (inclusive) mediante el índice
+     * por fecha, en tiempo proporcional a la cantidad de tareas encontradas. Las
+     * tareas con fecha que no está en formato yyyy-MM-dd no se incluyen.
+     *
+     * @param desde primer día.
+     * @param hasta último día.
+     * @return tareas ordenadas por fecha y, dentro de un día, en el orden del almacén.
+     */
+    public List<Tarea> filtrarPorFecha(LocalDate desde, LocalDate hasta) {
+        return enOrdenDeFecha(indice().filasEntre(desde.toEpochDay(), hasta.toEpochDay()));
+    }
+
+    /**
+     * Como {@link #filtrarPorFecha}, pero solo con las tareas de un proyecto.
+     *
+     * @param proyectoId ID del proyecto.
+     * @param desde      primer día.
+     * @param hasta      último día.
+     * @return tareas ordenadas por fecha y, dentro de un día, en el orden del almacén.
+     */
+    public List<Tarea> filtrarPorProyectoYFecha(String proyectoId, LocalDate desde, LocalDate hasta) {
+        return enOrdenDeFecha(indice().filasDeProyectoEntre(proyectoId, desde.toEpochDay(), hasta.toEpochDay()));
+    }
+
+    /**
+     * Como {@link #filtrarPorFecha}, pero solo con las tareas de un responsable
+     * (sin distinguir mayúsculas de minúsculas).
+     *
+     * @param responsable nombre del responsable.
+     * @param desde       primer día.
+     * @param hasta       último día.
+     * @return tareas ordenadas por fecha y, dentro de un día, en el orden del almacén.
+     */
+    public List<Tarea> filtrarPorResponsableYFecha(String responsable, LocalDate desde, LocalDate hasta) {
+        return enOrdenDeFecha(indice().filasDeResponsableEntre(responsable, desde.toEpochDay(), hasta.toEpochDay()));
+    }
+
+    /**
+     * Indica si un responsable (sin distinguir mayúsculas de minúsculas) ya tiene
+     * una tarea con la fecha indicada. Usa el conteo por responsable y día del
+     * índice, por lo que cuesta O(1).
+     *
+     * @param responsable nombre del responsable.
+     * @param fecha       día a verificar.
+     * @return true si ya tiene alguna tarea ese día.
+     */
+    public boolean tieneTareaEnDia(String responsable, LocalDate fecha) {
+        return indice().tareasEnDia(responsable, fecha.toEpochDay()) > 0;
+    }
+
+    /**
+     * Verifica en una sola pasada la regla de una tarea por responsable y día para
+     * un grupo de tareas a importar. Una candidata se rechaza si su responsable ya
+     * tiene una tarea ese día en el almacén o en una candidata anterior. Las fechas
+     * que no están en formato yyyy-MM-dd no se verifican.
+     *
+     * @param candidatas tareas a importar, en orden.
+     * @return posiciones de las candidatas rechazadas.
+     */
+    public BitSet rechazadasPorDia(List<? extends Tarea> candidatas) {
+        IndiceTareas i = indice();
+        BitSet rechazadas = new BitSet(candidatas.size());
+        Set<String> aceptadas = new HashSet<>();
+        for (int k = 0; k < candidatas.size(); k++) {
+            Tarea t = candidatas.get(k);
+            long dia = FilasTareas.diaDeFecha(t.getFecha());
+            if (dia < Integer.MIN_VALUE || dia > Integer.MAX_VALUE) continue;
+            if (i.tareasEnDia(t.getResponsable(), dia) > 0
+                    || !aceptadas.add(IndiceTareas.normalizar(t.getResponsable()) + '|' + dia)) {
+                rechazadas.set(k);
+            }
+        }
+        return rechazadas;
+    }
+
+    /**
+     * Busca una tarea por su ID mediante el índice por ID.
+     *
+     * @param id ID de la tarea.
+     * @return la tarea, o null si no existe.
+     */
+    public Tarea buscarPorId(String id) {
+        int f = filaPorId(id);
+        return f < 0 ? null : vista(f);
+    }
+
+    /**
+     * Busca la fila de una tarea por su ID mediante el índice por ID, sin crear su vista.
+     *
+     * @param id ID de la tarea.
+     * @return fila, o -1 si no existe.
+     */
+    int filaPorId(String id) {
+        return porId().buscar(id);
+    }
+
+    /**
+     * Busca tareas por las palabras de su descripción, sin distinguir mayúsculas
+     * de minúsculas ni tildes, mediante el índice de palabras. Una palabra
+     * terminada en '*' busca las palabras que empiezan con ella.
+     *
+     * @param consulta palabras a buscar, separadas por espacios.
+     * @param todas    true si la descripción debe contener todas las palabras,
+     *                 false si basta con una.
+     * @param limite   cantidad máxima de tareas.
+     * @return tareas encontradas, primero las con más coincidencias y luego en el
+     *         orden del almacén.
+     */
+    public List<Tarea> buscarEnDescripcion(String consulta, boolean todas, int limite) {
+        IndiceTexto.Resultado r = texto().buscar(IndiceTexto.consulta(consulta), todas);
+        int[] pos = posiciones();
+        long[] claves = new long[r.cantidad];
+        for (int i = 0; i < r.cantidad; i++) claves[i] = (long) -r.aciertos[i] << 32 | pos[r.filas[i]];
+        Arrays.sort(claves);
+        int n = Math.min(r.cantidad, Math.max(limite, 0));
+        List<Tarea> resultado = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) resultado.add(vista(filas.fila((int) claves[i])));
+        return resultado;
+    }
+
+    // ========================================================================
+    //  LISTA
+    // ========================================================================
+
+    /**
+     * Retorna la tarea de la posición indicada, creando su vista si aún no existe.
+     */
+    @Override
+    public Tarea get(int index) {
+        compactar();
+        revisarIndice(index);
+        return vista(filas.fila(index));
+    }
+
+    @Override
+    public int size() {
+        return filas.tamano() - pendientes;
+    }
+
+    /**
+     * Inserta una tarea copiando sus datos en una nueva fila. La tarea pasa a ser
+     * la vista de esa fila. Todos sus atributos, salvo el ID, pueden ser null.
+     *
+     * @throws IllegalArgumentException si la tarea no tiene ID, ya pertenece a este
+     *                                  almacén o ya existe otra tarea con su ID.
+     */
+    @Override
+    public void add(int index, Tarea t) {
+        compactar();
+        if (index < 0 || index > filas.tamano()) throw new IndexOutOfBoundsException(index);
+        TareaStore origen = t.getStore();
+        if (origen == this) throw new IllegalArgumentException("La tarea ya pertenece al almacén");
+        if (t.getId() == null) throw new IllegalArgumentException("La tarea no tiene ID");
+        if (porId().buscar(t.getId()) >= 0) throw new IllegalArgumentException("Ya existe una tarea con el ID " + t.getId());
+        int anterior = t.getFila();
+        int f = filas.nueva();
+        t.getFilas().copiar(anterior, filas, f);
+        if (origen != null) origen.olvidarVista(anterior);
+        filas.insertar(index, f);
+        if (indice != null) indice.agregar(f);
+        if (texto != null) texto.agregar(f);
+        if (valores != null) valores.agregar(f);
+        porId.agregar(f);
+        if (index == filas.tamano() - 1) agregarAPrioridades(f);
+        else prioridades.clear();
+        posiciones = null;
+        t.mover(this, filas, f);
+        vincular(f, t);
+        modCount++;
+    }
+
+    /**
+     * Elimina una tarea y libera su fila. Su vista, si existe, conserva una copia de los datos.
+     */
+    @Override
+    public Tarea remove(int index) {
+        Tarea t = get(index);
+        int f = filas.fila(index);
+        desvincular(f);
+        quitarDeIndices(f);
+        filas.quitar(index);
+        filas.liberar(f);
+        posiciones = null;
+        modCount++;
+        return t;
+    }
+
+    /**
+     * Elimina una tarea sin buscar su posición: la fila de la vista sale de los
+     * índices y queda marcada en el orden hasta la próxima compactación (ver
+     * {@link #compactar()}). Varias eliminaciones seguidas se pagan con un solo
+     * recorrido del orden.
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (!contains(o)) return false;
+        eliminarFila(((Tarea) o).getFila());
+        return true;
+    }
+
+    /**
+     * Elimina una fila del almacén sin buscar su posición, igual que
+     * {@link #remove(Object)}, pero sin necesitar su vista.
+     *
+     * @param f fila a eliminar.
+     */
+    void eliminarFila(int f) {
+        desvincular(f);
+        quitarDeIndices(f);
+        borradas.set(f);
+        pendientes++;
+        modCount++;
+    }
+
+    /**
+     * Retorna la posición de una tarea mediante la posición guardada de su fila.
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (!contains(o)) return -1;
+        compactar();
+        return posiciones()[((Tarea) o).getFila()];
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        // Una tarea eliminada deja de apuntar a este almacén (ver desvincular).
+        return o instanceof Tarea && ((Tarea) o).getStore() == this;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super Tarea> filtro) {
+        compactar();
+        BitSet eliminar = new BitSet();
+        for (int p = 0, n = filas.tamano(); p < n; p++) {
+            int f = filas.fila(p);
+            if (filtro.test(vista(f))) eliminar.set(f);
+        }
+        return eliminarFilas(eliminar);
+    }
+
+    /**
+     * Elimina todas las tareas de un proyecto recorriendo las filas.
+     *
+     * @param proyectoId ID del proyecto.
+     * @return true si se eliminó alguna tarea.
+     */
+    public boolean eliminarDeProyecto(String proyectoId) {
+        int codigo = filas.buscarIdentificador(proyectoId);
+        if (codigo < 0) return false;
+        compactar();
+        BitSet eliminar = new BitSet();
+        for (int p = 0, n = filas.tamano(); p < n; p++) {
+            int f = filas.fila(p);
+            if (filas.codigoProyecto(f) == codigo) eliminar.set(f);
+        }
+        return eliminarFilas(eliminar);
+    }
+
+    /**
+     * Elimina en una sola pasada las filas marcadas, conservando el orden del resto.
+     *
+     * @param eliminar filas a eliminar.
+     * @return true si se eliminó alguna fila.
+     */
+    boolean eliminarFilas(BitSet eliminar) {
+        if (eliminar.isEmpty()) return false;
+        compactar();
+        int n = filas.tamano();
+        int destino = 0;
+        for (int p = 0; p < n; p++) {
+            int f = filas.fila(p);
+            if (eliminar.get(f)) {
+                desvincular(f);
+                quitarDeIndices(f);
+                filas.liberar(f);
+                continue;
+            }
+            if (destino != p) filas.setFila(destino, f);
+            destino++;
+        }
+        filas.setTamano(destino);
+        posiciones = null;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Vacía el almacén. Las vistas existentes conservan los datos actuales: en el
+     * heap pasan a otro almacén con los mismos arreglos, sin copiarlos; fuera del
+     * heap cada una se lleva una copia de su fila.
+     */
+    @Override
+    public void clear() {
+        compactar();
+        purgarVistas();
+        if (!filas.fueraDeHeap()) {
+            TareaStore anterior = new TareaStore(filas.separar());
+            for (VistaDebil ref : vistasDebiles.values()) {
+                Tarea t = ref.get();
+                if (t == null) continue;
+                t.mover(anterior, anterior.filas, ref.fila);
+                anterior.vincular(ref.fila, t);
+            }
+            vistasDebiles.clear();
+        } else {
+            for (Integer f : new ArrayList<>(vistasDebiles.keySet())) desvincular(f);
+            filas.reiniciar();
+        }
+        indice = null;
+        porId = null;
+        texto = null;
+        valores = null;
+        prioridades.clear();
+        posiciones = null;
+        modCount++;
+    }
+
+    /**
+     * Ordena las tareas según el comparador. Solo se reescribe el orden; las filas
+     * no se mueven.
+     */
+    @Override
+    public void sort(Comparator<? super Tarea> c) {
+        compactar();
+        int n = filas.tamano();
+        Tarea[] orden = new Tarea[n];
+        for (int p = 0; p < n; p++) orden[p] = get(p);
+        Arrays.sort(orden, c);
+        for (int p = 0; p < n; p++) filas.setFila(p, orden[p].getFila());
+        prioridades.clear();
+        posiciones = null;
+        modCount++;
+    }
+
+    /**
+     * Reordena las tareas sin crear sus vistas. Solo se reescribe el orden.
+     *
+     * @param permutacion posición actual de la tarea que debe quedar en cada posición.
+     */
+    void reordenar(int[] permutacion) {
+        compactar();
+        int n = filas.tamano();
+        if (permutacion.length != n) throw new IllegalArgumentException("La permutación no corresponde al almacén");
+        int[] anteriores = new int[n];
+        for (int p = 0; p < n; p++) anteriores[p] = filas.fila(p);
+        for (int p = 0; p < n; p++) filas.setFila(p, anteriores[permutacion[p]]);
+        prioridades.clear();
+        posiciones = null;
+        modCount++;
+    }
+
+    /**
+     * Agrega al final todas las tareas de otro almacén, en su orden. Las vistas del
+     * otro almacén pasan a este, que queda vacío.
+     *
+     * @param otro almacén a incorporar.
+     */
+    public void agregarTodas(TareaStore otro) {
+        if (otro == this || otro.isEmpty()) return;
+        otro.compactar();
+        for (int p = 0, n = otro.filas.tamano(); p < n; p++) {
+            int anterior = otro.filas.fila(p);
+            int f = filas.nueva();
+            otro.filas.copiar(anterior, filas, f);
+            filas.insertar(filas.tamano(), f);
+            if (indice != null) indice.agregar(f);
+            if (texto != null) texto.agregar(f);
+            if (valores != null) valores.agregar(f);
+            if (porId != null) porId.agregar(f);
+            agregarAPrioridades(f);
+            Tarea t = otro.vistaGuardada(anterior);
+            if (t != null) {
+                t.mover(this, filas, f);
+                vincular(f, t);
+            }
+        }
+        otro.filas.reiniciar();
+        otro.vistasDebiles.clear();
+        otro.indice = null;
+        otro.porId = null;
+        otro.texto = null;
+        otro.valores = null;
+        otro.prioridades.clear();
+        otro.posiciones = null;
+        posiciones = null;
+        otro.modCount++;
+        modCount++;
+    }
+
+    /**
+     * Copia los datos actuales en un almacén nuevo, sin vistas. Se usa para
+     * guardar los datos en segundo plano mientras este almacén sigue cambiando.
+     *
+     * @return copia del almacén, en memoria.
+     */
+    public TareaStore copia() {
+        compactar();
+        return new TareaStore(filas.copia());
+    }
+
+    // ========================================================================
+    //  AUXILIARES
+    // ========================================================================
+
+    /**
+     * Ejecuta una consulta sobre las tareas del almacén (ver {@link ConsultaTareas}).
+     *
+     * @param consulta filtros, orden y límite.
+     * @return tareas que cumplen la consulta.
+     */
+    public List<Tarea> consultar(ConsultaTareas consulta) {
+        return consulta.ejecutar(this);
+    }
+
+    /**
+     * Cuenta las tareas que cumplen una consulta sin crear sus vistas (ver
+     * {@link ConsultaTareas#contar}).
+     *
+     * @param consulta filtros.
+     * @return cantidad de tareas.
+     */
+    public int contar(ConsultaTareas consulta) {
+        return consulta.contar(this);
+    }
+
+    /** @return cantidad de tareas por estado, sin distinguir mayúsculas de minúsculas. */
+    public Map<String, Integer> conteosPorEstado() {
+        return valores().conteos(IndiceValores.Atributo.ESTADO, null);
+    }
+
+    /** @return cantidad de tareas por tipo, sin distinguir mayúsculas de minúsculas. */
+    public Map<String, Integer> conteosPorTipo() {
+        return valores().conteos(IndiceValores.Atributo.TIPO, null);
+    }
+
+    /** @return cantidad de tareas por complejidad, sin distinguir mayúsculas de minúsculas. */
+    public Map<String, Integer> conteosPorComplejidad() {
+        return valores().conteos(IndiceValores.Atributo.COMPLEJIDAD, null);
+    }
+
+    /**
+     * Retorna las primeras tareas en el orden de una estrategia de priorización,
+     * sin modificar el orden del almacén. Usa la vista de prioridad del
+     * comparador, creándola con las filas actuales si aún no existe.
+     *
+     * @param campo    atributo de la estrategia.
+     * @param orden    orden de los valores del atributo; identifica la vista.
+     * @param cantidad cantidad máxima de tareas.
+     * @return lista nueva con las tareas, en orden de prioridad.
+     */
+    synchronized List<Tarea> priorizadas(OrdenPorClave.Campo campo, Comparator<String> orden, int cantidad) {
+        compactar();
+        VistaPrioridad v = prioridades.computeIfAbsent(orden, o -> new VistaPrioridad(filas, campo, o));
+        int[] fs = v.primeras(cantidad);
+        List<Tarea> resultado = new ArrayList<>(fs.length);
+        for (int f : fs) resultado.add(vista(f));
+        return resultado;
+    }
+
+    /**
+     * @return filas del almacén sin compactar el orden, para que las vistas lean
+     *         los datos de su fila.
+     */
+    FilasTareas filasDeVistas() {
+        return filas;
+    }
+
+    /** @return filas del almacén, para {@link ConsultaTareas}, con el orden ya compactado. */
+    FilasTareas filas() {
+        compactar();
+        return filas;
+    }
+
+    /**
+     * Quita del orden, en una sola pasada, las filas eliminadas con
+     * {@link #remove(Object)} y las libera. Puede invocarse desde varios hilos
+     * que leen el almacén a la vez; solo el primero recorre el orden.
+     */
+    private void compactar() {
+        if (pendientes == 0) return;
+        synchronized (this) {
+            if (pendientes == 0) return;
+            int n = filas.tamano();
+            int destino = 0;
+            for (int p = 0; p < n; p++) {
+                int f = filas.fila(p);
+                if (borradas.get(f)) {
+                    filas.liberar(f);
+                    continue;
+                }
+                if (destino != p) filas.setFila(destino, f);
+                destino++;
+            }
+            filas.setTamano(destino);
+            borradas.clear();
+            posiciones = null;
+            pendientes = 0;
+        }
+    }
+
+    /** Retorna los índices, creándolos con las filas actuales si aún no existen. */
+    IndiceTareas indice() {
+        IndiceTareas i = indice;
+        if (i != null) return i;
+        synchronized (this) {
+            if (indice == null) {
+                compactar();
+                indice = new IndiceTareas(filas);
+            }
+            return indice;
+        }
+    }
+
+    /** Retorna los conjuntos por valor, creándolos con las filas actuales si aún no existen. */
+    IndiceValores valores() {
+        IndiceValores i = valores;
+        if (i != null) return i;
+        synchronized (this) {
+            if (valores == null) {
+                compactar();
+                valores = new IndiceValores(filas);
+            }
+            return valores;
+        }
+    }
+
+    /** Retorna el índice de palabras, creándolo con las filas actuales si aún no existe. */
+    private IndiceTexto texto() {
+        IndiceTexto i = texto;
+        if (i != null) return i;
+        synchronized (this) {
+            if (texto == null) {
+                compactar();
+                texto = new IndiceTexto(filas);
+            }
+            return texto;
+        }
+    }
+
+    /** Retorna el índice por ID, creándolo con las filas actuales si aún no existe. */
+    private IndiceIds porId() {
+        IndiceIds i = porId;
+        if (i != null) return i;
+        synchronized (this) {
+            if (porId == null) {
+                compactar();
+                porId = new IndiceIds(filas);
+            }
+            return porId;
+        }
+    }
+
+    /** Quita una fila de los índices existentes, antes de liberarla. */
+    private void quitarDeIndices(int f) {
+        if (indice != null) indice.quitar(f);
+        if (texto != null) texto.quitar(f);
+        if (valores != null) valores.quitar(f);
+        if (porId != null) porId.quitar(f);
+        for (VistaPrioridad v : prioridades.values()) v.quitar(f);
+    }
+
+    /** Agrega una fila, ya puesta al final del orden, a las vistas de prioridad existentes. */
+    private void agregarAPrioridades(int f) {
+        if (!prioridades.isEmpty()) prioridades.values().removeIf(v -> !v.agregar(f));
+    }
+
+    /**
+     * Retorna las vistas de las filas indicadas en el orden del almacén, ordenando
+     * solo esas filas por su posición.
+     */
+    private List<Tarea> enOrden(int[] fs) {
+        ordenarPorPosicion(fs, fs.length);
+        List<Tarea> resultado = new ArrayList<>(fs.length);
+        for (int f : fs) resultado.add(vista(f));
+        return resultado;
+    }
+
+    /** Ordena las primeras <code>n</code> filas del arreglo según su posición en el almacén. */
+    void ordenarPorPosicion(int[] fs, int n) {
+        if (n < 2) return;
+        int[] pos = posiciones();
+        long[] claves = new long[n];
+        for (int i = 0; i < n; i++) claves[i] = (long) pos[fs[i]] << 32 | fs[i];
+        Arrays.sort(claves);
+        for (int i = 0; i < n; i++) fs[i] = (int) claves[i];
+    }
+
+    /**
+     * Retorna las vistas de las filas indicadas ordenadas por fecha y luego por
+     * posición. Todas las filas deben tener fecha como número de día.
+     */
+    private List<Tarea> enOrdenDeFecha(int[] fs) {
+        if (fs.length > 1) {
+            int[] pos = posiciones();
+            long[] claves = new long[fs.length];
+            for (int i = 0; i < fs.length; i++) claves[i] = filas.dia(fs[i]) << 32 | pos[fs[i]];
+            Arrays.sort(claves);
+            for (int i = 0; i < fs.length; i++) fs[i] = filas.fila((int) claves[i]);
+        }
+        List<Tarea> resultado = new ArrayList<>(fs.length);
+        for (int f : fs) resultado.add(vista(f));
+        return resultado;
+    }
+
+    /** Retorna la posición de cada fila, recalculándola si el orden cambió. */
+    private int[] posiciones() {
+        int[] pos = posiciones;
+        if (pos != null) return pos;
+        int n = filas.tamano();
+        int maxima = 0;
+        for (int p = 0; p < n; p++) maxima = Math.max(maxima, filas.fila(p));
+        pos = new int[maxima + 1 + (maxima >> 3)];
+        for (int p = 0; p < n; p++) pos[filas.fila(p)] = p;
+        posiciones = pos;
+        return pos;
+    }
+
+    /** Retorna la vista de una fila, creándola si no existe. */
+    Tarea vista(int f) {
+        Tarea t = vistaGuardada(f);
+        return t != null ? t : TareaFactory.crearVista(this, f);
+    }
+
+    /** Retorna la vista existente de una fila, o null. */
+    private Tarea vistaGuardada(int f) {
+        VistaDebil ref = vistasDebiles.get(f);
+        return ref != null ? ref.get() : null;
+    }
+
+    private void olvidarVista(int f) {
+        vistasDebiles.remove(f);
+    }
+
+    /** Deja suelta la vista de una fila, si existe, con una copia de sus datos en una {@link FilaSuelta}. */
+    private void desvincular(int f) {
+        Tarea t = vistaGuardada(f);
+        if (t == null) return;
+        olvidarVista(f);
+        FilaSuelta suelta = new FilaSuelta();
+        filas.copiar(f, suelta, 0);
+        t.mover(null, suelta, 0);
+    }
+
+    /** Quita las referencias débiles de las vistas ya recolectadas. */
+    private void purgarVistas() {
+        VistaDebil ref;
+        while ((ref = (VistaDebil) recolectadas.poll()) != null) {
+            vistasDebiles.remove(ref.fila, ref);
+        }
+    }
+
+    private void revisarIndice(int index) {
+        if (index < 0 || index >= filas.tamano()) throw new IndexOutOfBoundsException(index);
+    }
+
+    /** Referencia débil a una vista, con su fila para quitarla del mapa al recolectarse. */
+    private static final class VistaDebil extends WeakReference<Tarea> {
+
+        private final int fila;
+
+        VistaDebil(Tarea vista, int fila, ReferenceQueue<Tarea> cola) {
+            super(vista, cola);
+            this.fila = fila;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package taller03;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Orden de prioridad de las filas de un {@link TareaStore} según el atributo y el
+ * comparador de una estrategia, mantenido a medida que cambian las tareas.
+ * <p>
+ * Las filas se agrupan en cubetas, una por valor del atributo, ordenadas con el
+ * comparador de la estrategia; los valores que el comparador considera iguales
+ * comparten cubeta. Cada fila recibe un número de secuencia que crece con cada
+ * fila agregada al final del almacén, de modo que dentro de una cubeta las filas
+ * quedan en el orden del almacén y recorrer las cubetas da el mismo orden que un
+ * ordenamiento estable de la lista, sin modificarla.
+ * </p>
+ *
+ * Agregar una fila cuesta encontrar su cubeta, que se recuerda por valor. Quitar
+ * una fila solo anula su secuencia: sus entradas se descartan al recorrer y la
+ * cubeta se compacta cuando las descartadas superan a las vigentes. Si el
+ * almacén se reordena o se inserta en medio, la vista se descarta y se vuelve a
+ * crear en la siguiente consulta.
+ */
+final class VistaPrioridad {
+
+    /** Entradas descartadas desde las que se considera compactar una cubeta. */
+    private static final int MINIMO_PARA_COMPACTAR = 64;
+
+    private final FilasTareas filas;
+    private final OrdenPorClave.Campo campo;
+
+    /** Cubetas en orden de prioridad. */
+    private final TreeMap<String, Cubeta> cubetas;
+
+    /** Cubeta de cada valor ya visto y de cada número de día, para no comparar al agregar. */
+    private final Map<String, Cubeta> porValor = new HashMap<>();
+    private final Map<Integer, Cubeta> porDia = new HashMap<>();
+
+    /** Secuencia de cada fila de la vista, o -1 si la fila no está. */
+    private int[] secuencias = new int[0];
+    private int siguiente;
+    private int cantidad;
+
+    /**
+     * Crea la vista con las filas que ya están en orden.
+     *
+     * @param filas filas del almacén.
+     * @param campo atributo de la estrategia.
+     * @param orden orden de los valores del atributo.
+     */
+    VistaPrioridad(FilasTareas filas, OrdenPorClave.Campo campo, Comparator<String> orden) {
+        this.filas = filas;
+        this.campo = campo;
+        this.cubetas = new TreeMap<>(orden);
+        for (int p = 0, n = filas.tamano(); p < n; p++) agregar(filas.fila(p));
+    }
+
+    /**
+     * Agrega una fila ya escrita al final del orden del almacén.
+     *
+     * @return false si se agotaron los números de secuencia y la vista debe
+     *         volver a crearse.
+     */
+    boolean agregar(int f) {
+        if (siguiente == Integer.MAX_VALUE) return false;
+        if (f >= secuencias.length) {
+            int anterior = secuencias.length;
+            secuencias = Arrays.copyOf(secuencias, Math.max(f + 1, anterior + (anterior >> 1) + 16));
+            Arrays.fill(secuencias, anterior, secuencias.length, -1);
+        }
+        secuencias[f] = siguiente;
+        cubeta(f).agregar(f, siguiente++);
+        cantidad++;
+        return true;
+    }
+
+    /** Quita una fila, antes de liberarla. */
+    void quitar(int f) {
+        if (f >= secuencias.length || secuencias[f] < 0) return;
+        secuencias[f] = -1;
+        cantidad--;
+        Cubeta c = cubeta(f);
+        if (--c.vigentes == 0) {
+            cubetas.remove(c.valor);
+            for (String valor : c.valores) porValor.remove(valor);
+            for (Integer dia : c.dias) porDia.remove(dia);
+        } else if (c.cantidad - c.vigentes > MINIMO_PARA_COMPACTAR && c.cantidad - c.vigentes > c.vigentes) {
+            c.compactar(secuencias);
+        }
+    }
+
+    /**
+     * @param k cantidad máxima de filas.
+     * @return las primeras <code>k</code> filas en orden de prioridad.
+     */
+    int[] primeras(int k) {
+        int[] r = new int[Math.min(Math.max(k, 0), cantidad)];
+        int n = 0;
+        for (Cubeta c : cubetas.values()) {
+            if (n == r.length) break;
+            // Las entradas descartadas del comienzo no vuelven a ser vigentes.
+            while (c.inicio < c.cantidad && !c.vigente(c.inicio, secuencias)) c.inicio++;
+            for (int j = c.inicio; j < c.cantidad && n < r.length; j++) {
+                if (c.vigente(j, secuencias)) r[n++] = c.filas[j];
+            }
+        }
+        return r;
+    }
+
+    /** @return cubeta del valor actual del atributo de la fila. */
+    private Cubeta cubeta(int f) {
+        long dia = campo == OrdenPorClave.Campo.FECHA ? filas.dia(f) : Long.MIN_VALUE;
+        if (dia != Long.MIN_VALUE) {
+            Cubeta c = porDia.get((int) dia);
+            if (c == null) {
+                c = cubetas.computeIfAbsent(FilasTareas.fechaDeDia((int) dia), Cubeta::new);
+                porDia.put((int) dia, c);
+                c.dias.add((int) dia);
+            }
+            return c;
+        }
+        String valor = campo.de(filas, f);
+        Cubeta c = porValor.get(valor);
+        if (c == null) {
+            c = cubetas.computeIfAbsent(valor, Cubeta::new);
+            porValor.put(valor, c);
+            c.valores.add(valor);
+        }
+        return c;
+    }
+
+    /** Filas con un mismo valor según el comparador, en orden de secuencia. */
+    private static final class Cubeta {
+
+        /** Primer valor que creó la cubeta, su clave entre las cubetas. */
+        final String valor;
+
+        /** Claves con que la cubeta está en los mapas por valor y por día, para quitarla sin recorrerlos. */
+        final List<String> valores = new ArrayList<>(1);
+        final List<Integer> dias = new ArrayList<>(1);
+
+        int[] filas = new int[4];
+        int[] secuencias = new int[4];
+        int cantidad;
+        int vigentes;
+
+        /** Entradas del comienzo que ya se sabe que están descartadas. */
+        int inicio;
+
+        Cubeta(String valor) {
+            this.valor = valor;
+        }
+
+        void agregar(int f, int secuencia) {
+            if (cantidad == filas.length) {
+                filas = Arrays.copyOf(filas, cantidad * 2);
+                secuencias = Arrays.copyOf(secuencias, cantidad * 2);
+            }
+            filas[cantidad] = f;
+            secuencias[cantidad++] = secuencia;
+            vigentes++;
+        }
+
+        boolean vigente(int j, int[] actuales) {
+            return actuales[filas[j]] == secuencias[j];
+        }
+
+        /** Quita las entradas descartadas. */
+        void compactar(int[] actuales) {
+            int k = 0;
+            for (int j = inicio; j < cantidad; j++) {
+                if (!vigente(j, actuales)) continue;
+                filas[k] = filas[j];
+                secuencias[k++] = secuencias[j];
+            }
+            cantidad = k;
+            inicio = 0;
+        }
+    }
+}